@@ -0,0 +1,125 @@
+package com.taskapp.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+
+/**
+ * ベンチマーク用のCSVを生成します。
+ * 生成したファイルは行数ごとに{@code taskapp.bench.dir}配下へキャッシュし、フォーク間で使い回します。
+ * 書き込みを伴うベンチマークは{@link #workingCopy(Path, Path)}で複製したファイルを利用してください。
+ */
+public final class BenchData {
+    /** タスクCSVを生成するときの担当ユーザー数 */
+    public static final int TASK_USERS = 500;
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2024, 1, 1);
+
+    private BenchData() {
+    }
+
+    /**
+     * 指定した行数のタスクCSVを取得します。担当者は{@link #TASK_USERS}人に均等に割り振られます。
+     *
+     * @param rows 行数
+     * @return 生成済みのタスクCSV
+     */
+    public static Path tasks(int rows) {
+        return generate("tasks-" + rows + ".csv", "Code,Name,Status,Rep_User_Code", rows,
+                i -> i + ",タスク" + i + ",0," + (i % TASK_USERS + 1));
+    }
+
+    /**
+     * 指定した行数のユーザーCSVを取得します。
+     *
+     * @param rows 行数
+     * @return 生成済みのユーザーCSV
+     */
+    public static Path users(int rows) {
+        return generate("users-" + rows + ".csv", "Code,Name,Email,Password", rows,
+                i -> i + ",ユーザー" + i + "," + email(i) + "," + password(i));
+    }
+
+    /**
+     * 指定した行数のログCSVを取得します。
+     *
+     * @param rows 行数
+     * @return 生成済みのログCSV
+     */
+    public static Path logs(int rows) {
+        return generate("logs-" + rows + ".csv", "Task_Code,Change_User_Code,Status,Change_Date", rows,
+                i -> i + "," + (i % TASK_USERS + 1) + "," + (i % 3) + "," + FIRST_DATE.plusDays(i / 1000));
+    }
+
+    public static String email(int userCode) {
+        return "user" + userCode + "@example.com";
+    }
+
+    public static String password(int userCode) {
+        return "password" + userCode;
+    }
+
+    /**
+     * 生成済みのファイルを書き込み用に複製します。
+     *
+     * @param fixture 複製元のファイル
+     * @param target  複製先のファイル
+     * @return 複製先のパス
+     */
+    public static Path workingCopy(Path fixture, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            return Files.copy(fixture, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * ベンチマークごとの作業ディレクトリを取得します。
+     *
+     * @param name ベンチマーク名
+     * @return 作業ディレクトリ
+     */
+    public static Path workDir(String name) {
+        return baseDir().resolve("work").resolve(name + "-" + ProcessHandle.current().pid());
+    }
+
+    private static Path generate(String fileName, String header, int rows, RowFormat format) {
+        Path file = baseDir().resolve(fileName);
+        if (Files.exists(file)) {
+            return file;
+        }
+        Path tmp = file.resolveSibling(fileName + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter writer = new BufferedWriter(
+                    Files.newBufferedWriter(tmp, StandardCharsets.UTF_8), 1 << 20)) {
+                writer.write(header);
+                for (int i = 1; i <= rows; i++) {
+                    writer.newLine();
+                    writer.write(format.row(i));
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return file;
+    }
+
+    private static Path baseDir() {
+        return Paths.get(System.getProperty("taskapp.bench.dir", "build/jmh-data"));
+    }
+
+    @FunctionalInterface
+    private interface RowFormat {
+        String row(int i);
+    }
+}
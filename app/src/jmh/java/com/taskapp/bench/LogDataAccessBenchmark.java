@@ -0,0 +1,71 @@
+package com.taskapp.bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taskapp.dataaccess.AsyncLogWriter.Durability;
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.model.Log;
+
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LogDataAccessBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    private int rows;
+
+    /** SYNCは1件ごとにファイルを開閉し、ASYNC_*はバックグラウンドでまとめて書き込みます */
+    @Param({ "SYNC", "ASYNC_FLUSH", "ASYNC_FSYNC" })
+    private String mode;
+
+    private Path fixture;
+    private Path logsFile;
+    private LogDataAccess logDataAccess;
+    private final LocalDate today = LocalDate.now();
+    private int taskCode;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        fixture = BenchData.logs(rows);
+        logsFile = BenchData.workDir("LogDataAccess-" + rows + "-" + mode).resolve("logs.csv");
+        BenchData.workingCopy(fixture, logsFile);
+        logDataAccess = switch (mode) {
+            case "ASYNC_FLUSH" -> new LogDataAccess(logsFile.toString(), 8192, 512, 5, Durability.FLUSH);
+            case "ASYNC_FSYNC" -> new LogDataAccess(logsFile.toString(), 8192, 512, 5, Durability.FSYNC);
+            default -> new LogDataAccess(logsFile.toString());
+        };
+    }
+
+    /**
+     * 非同期モードでは溜まった分を書き切るまでをイテレーションに含めず、ここで閉じます。
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        logDataAccess.close();
+    }
+
+    @Benchmark
+    public void save() {
+        taskCode++;
+        logDataAccess.save(new Log(taskCode, 1, taskCode % 3, today));
+    }
+}
@@ -0,0 +1,47 @@
+package com.taskapp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taskapp.metrics.Metrics;
+import com.taskapp.metrics.OperationMetrics;
+
+/**
+ * 1回の呼び出しを計測するのにかかる時間を計測します。
+ * 記録はデータアクセスの全ての呼び出しに加わるため、ファイルを読む時間に比べて無視できる大きさであることを確認します。
+ * 計測を無効にした場合は{@code -Dtaskapp.metrics=false}を付けたフォークで比べてください。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    private static final OperationMetrics OPERATION = Metrics.operation("MetricsBenchmark.record");
+
+    @Benchmark
+    public void record() {
+        long start = OPERATION.start();
+        OPERATION.addRowsScanned(1);
+        OPERATION.record(start);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordContended() {
+        long start = OPERATION.start();
+        OPERATION.addRowsScanned(1);
+        OPERATION.record(start);
+    }
+}
@@ -0,0 +1,53 @@
+package com.taskapp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taskapp.dataaccess.PasswordHasher;
+
+/**
+ * パスワードの照合にかかる時間を反復回数ごとに計測します。
+ * ログインの処理時間はほぼこの照合で決まるため、{@code taskapp.password.iterations}はこの結果を基に、
+ * ログインの目標時間に収まる範囲で大きい値を選んでください。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHasherBenchmark {
+    @Param({ "10000", "100000", "300000", "600000" })
+    private int iterations;
+
+    private PasswordHasher hasher;
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        hasher = new PasswordHasher(iterations);
+        hash = hasher.hash(BenchData.password(1));
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify(BenchData.password(1), hash);
+    }
+
+    @Benchmark
+    public boolean verifyLegacyPlaintext() {
+        return hasher.verify(BenchData.password(1), BenchData.password(1));
+    }
+}
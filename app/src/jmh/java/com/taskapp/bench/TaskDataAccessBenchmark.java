@@ -0,0 +1,127 @@
+package com.taskapp.bench;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taskapp.dataaccess.ReadMode;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.TaskTable;
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.exception.AppException;
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TaskDataAccessBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    private int rows;
+
+    @Param({ "BUFFERED", "MAPPED" })
+    private ReadMode readMode;
+
+    private Path fixture;
+    private Path tasksFile;
+    private TaskDataAccess taskDataAccess;
+    private User repUser;
+    private int nextCode;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() throws AppException {
+        fixture = BenchData.tasks(rows);
+        tasksFile = BenchData.workDir("TaskDataAccess-" + rows + "-" + readMode).resolve("tasks.csv");
+        UserDataAccess userDataAccess = new UserDataAccess(BenchData.users(BenchData.TASK_USERS).toString());
+        taskDataAccess = new TaskDataAccess(tasksFile.toString(), userDataAccess, readMode);
+        repUser = userDataAccess.findByCode(1);
+    }
+
+    /**
+     * saveとupdateでファイルが変化するため、イテレーションごとに元のデータへ戻します。
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+        BenchData.workingCopy(fixture, tasksFile);
+        nextCode = rows + 1;
+    }
+
+    @Benchmark
+    public List<Task> findAll() {
+        return taskDataAccess.findAll();
+    }
+
+    /**
+     * findAllはタスクを参照したときに生成するため、全件を参照するまでの時間を計測します。
+     */
+    @Benchmark
+    public long findAllAndTraverse() {
+        long sum = 0;
+        for (Task task : taskDataAccess.findAll()) {
+            sum += task.getCode() + task.getName().length() + task.getRepUser().getCode();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public TaskTable findTable() {
+        return taskDataAccess.findTable();
+    }
+
+    @Benchmark
+    public Task findByCode() throws AppException {
+        return taskDataAccess.findByCode(random.nextInt(rows) + 1);
+    }
+
+    /**
+     * 担当者1人分のタスクを、担当ユーザーコードの索引から取得します。
+     */
+    @Benchmark
+    public List<Task> findByRepUserCode() {
+        return taskDataAccess.findByRepUserCode(random.nextInt(BenchData.TASK_USERS) + 1);
+    }
+
+    /**
+     * findByRepUserCodeと比較するため、全件を読み込んでから担当者で絞り込みます。
+     */
+    @Benchmark
+    public long findAllAndFilterByRepUser() {
+        int repUserCode = random.nextInt(BenchData.TASK_USERS) + 1;
+        long count = 0;
+        for (Task task : taskDataAccess.findAll()) {
+            if (task.getRepUser().getCode() == repUserCode) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public void save() {
+        taskDataAccess.save(new Task(nextCode++, "追加タスク", 0, repUser));
+    }
+
+    @Benchmark
+    public void update() {
+        int code = random.nextInt(rows) + 1;
+        taskDataAccess.update(new Task(code, "タスク" + code, 1, repUser));
+    }
+}
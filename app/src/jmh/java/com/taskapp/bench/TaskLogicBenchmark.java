@@ -0,0 +1,82 @@
+package com.taskapp.bench;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.model.User;
+
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TaskLogicBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    private int rows;
+
+    private Path tasksFixture;
+    private Path tasksFile;
+    private Path logsFile;
+    private TaskLogic taskLogic;
+    private User loginUser;
+    private long cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws AppException {
+        tasksFixture = BenchData.tasks(rows);
+        Path dir = BenchData.workDir("TaskLogic-" + rows);
+        tasksFile = dir.resolve("tasks.csv");
+        logsFile = dir.resolve("logs.csv");
+
+        UserDataAccess userDataAccess = new UserDataAccess(BenchData.users(BenchData.TASK_USERS).toString());
+        TaskDataAccess taskDataAccess = new TaskDataAccess(tasksFile.toString(), userDataAccess);
+        LogDataAccess logDataAccess = new LogDataAccess(logsFile.toString());
+        taskLogic = new TaskLogic(taskDataAccess, logDataAccess, userDataAccess);
+        loginUser = userDataAccess.findByCode(1);
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        BenchData.workingCopy(BenchData.logs(rows), logsFile);
+        restoreTasks();
+    }
+
+    /**
+     * 全タスクを未着手→着手中→完了の順に進めます。
+     * 全タスクが完了になったら元のデータへ戻します(2×行数回に1度のコピーなので結果への影響は小さい)。
+     */
+    @Benchmark
+    public void changeStatus() throws AppException {
+        if (cursor == 2L * rows) {
+            restoreTasks();
+        }
+        int code = (int) (cursor % rows) + 1;
+        int status = (int) (cursor / rows) + 1;
+        cursor++;
+        taskLogic.changeStatus(code, status, loginUser);
+    }
+
+    private void restoreTasks() {
+        BenchData.workingCopy(tasksFixture, tasksFile);
+        cursor = 0;
+    }
+}
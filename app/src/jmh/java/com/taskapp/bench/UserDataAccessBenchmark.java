@@ -0,0 +1,51 @@
+package com.taskapp.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.exception.AppException;
+import com.taskapp.model.User;
+
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class UserDataAccessBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    private int rows;
+
+    private UserDataAccess userDataAccess;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userDataAccess = new UserDataAccess(BenchData.users(rows).toString());
+    }
+
+    @Benchmark
+    public User findByEmailAndPassword() throws AppException {
+        int code = random.nextInt(rows) + 1;
+        return userDataAccess.findByEmailAndPassword(BenchData.email(code), BenchData.password(code));
+    }
+
+    @Benchmark
+    public User findByCode() throws AppException {
+        return userDataAccess.findByCode(random.nextInt(rows) + 1);
+    }
+}
@@ -1,11 +1,95 @@
 package com.taskapp;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.time.Duration;
+
+import com.taskapp.dataaccess.PasswordHasher;
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.metrics.Metrics;
+import com.taskapp.server.TaskApiServer;
 import com.taskapp.ui.TaskUI;
 
 public class App {
+    private static final int DEFAULT_PORT = 8080;
 
+    /**
+     * 引数がなければコンソールのメニューを、「server [ポート] [待ち受けるアドレス]」であればAPIサーバーを起動します。
+     * APIサーバーは待ち受けるアドレスを省略した場合、ループバックアドレスだけで待ち受けます。
+     * APIサーバーは終了時にエンドポイントごとと操作ごとの処理時間の集計を表示します。
+     * 「hash-password」の場合は、標準入力から読み込んだパスワードをユーザーCSVに保存する形式のハッシュにして表示します。
+     * メニューとAPIサーバーは、起動前にユーザーCSVに平文で残っているパスワードをハッシュに置き換えます。
+     * 操作ごとの計測値はJMXに登録し、{@code taskapp.metrics.dumpSeconds}を指定した場合はその間隔で標準エラー出力にも出力します。
+     *
+     * @param args 起動モード
+     */
     public static void main(String[] args) {
+        startMetrics();
+        if (args.length > 0 && args[0].equals("hash-password")) {
+            hashPassword();
+            return;
+        }
+        migratePasswords();
+        if (args.length > 0 && args[0].equals("server")) {
+            startServer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT,
+                    args.length > 2 ? args[2] : null);
+            return;
+        }
         TaskUI ui = new TaskUI();
         ui.displayMenu();
     }
+
+    private static void startMetrics() {
+        Metrics.registerMBean();
+        long dumpSeconds = Long.getLong("taskapp.metrics.dumpSeconds", 0);
+        if (dumpSeconds > 0) {
+            Metrics.startReporter(Duration.ofSeconds(dumpSeconds), System.err);
+        }
+    }
+
+    private static void migratePasswords() {
+        int migrated = new UserDataAccess().migratePasswords();
+        if (migrated > 0) {
+            System.out.println(migrated + "件のユーザーのパスワードをハッシュに置き換えました");
+        }
+    }
+
+    private static void hashPassword() {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+            System.out.print("パスワードを入力してください: ");
+            String password = reader.readLine();
+            if (password == null || password.isEmpty()) {
+                System.out.println("パスワードが入力されていません");
+                return;
+            }
+            System.out.println(new PasswordHasher().hash(password));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void startServer(int port, String bindAddress) {
+        TaskApiServer server;
+        try {
+            InetAddress address = bindAddress != null ? InetAddress.getByName(bindAddress)
+                    : InetAddress.getLoopbackAddress();
+            server = new TaskApiServer(new TaskLogic(), new UserLogic(), address, port);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            System.out.print(server.latencyReport());
+            System.out.print(Metrics.report());
+        }));
+        server.start();
+        System.out.println("APIサーバーを起動しました: http://" + server.getAddress().getHostAddress() + ":"
+                + server.getPort());
+    }
 }
@@ -0,0 +1,320 @@
+package com.taskapp.dataaccess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.taskapp.model.Log;
+
+/**
+ * ログをバックグラウンドのスレッドでまとめてCSVに追記するライターです。
+ * 呼び出し側はログを上限付きのキューに入れるだけで戻り、書き込みスレッドがファイルを開いたまま
+ * 件数({@code batchSize})か時間({@code maxDelayMillis})のどちらかに達するごとにまとめて書き込みます。
+ * キューが満杯のときは空きができるまで呼び出し側を待たせます。
+ */
+public final class AsyncLogWriter implements Closeable {
+    /**
+     * 1回のまとめ書きごとにどこまで永続化するかを表します。
+     */
+    public enum Durability {
+        /** OSへ書き込むところまで行います。プロセスが落ちても失われませんが、OSが落ちると失われる可能性があります */
+        FLUSH,
+        /** まとめ書きごとにfsyncし、ディスクへの書き込み完了を待ちます */
+        FSYNC
+    }
+
+    private final BlockingQueue<Log> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Durability durability;
+    private final Path path;
+    private final CsvFileLock fileLock;
+    private FileChannel channel;
+    private long channelGeneration;
+    private Object channelKey;
+    private final Thread thread;
+
+    private final ReentrantLock progressLock = new ReentrantLock();
+    private final Condition progressed = progressLock.newCondition();
+    private long enqueued;
+    private long written;
+    private long failed;
+    /** 受け付け中の{@link #append}が終わるまで{@link #close}を待たせるロック */
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final StringBuilder line = new StringBuilder(64);
+    private ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+
+    /**
+     * ライターを作成し、書き込みスレッドを開始します。
+     *
+     * @param path           追記するログCSV
+     * @param fileLock       ログCSVへの書き込みを直列化するロック
+     * @param capacity       キューに溜められる最大件数
+     * @param batchSize      1回にまとめて書き込む最大件数
+     * @param maxDelayMillis 最初のログを受け取ってから書き込むまでの最大待ち時間
+     * @param durability     まとめ書きごとの永続化の度合い
+     * @throws IOException ログCSVを開けなかった場合
+     */
+    AsyncLogWriter(Path path, CsvFileLock fileLock, int capacity, int batchSize, long maxDelayMillis,
+            Durability durability) throws IOException {
+        if (capacity <= 0 || batchSize <= 0 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("キューの容量・まとめ書きの件数は1以上、待ち時間は0以上を指定してください");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.durability = durability;
+        this.path = path;
+        this.fileLock = fileLock;
+        this.channelGeneration = fileLock.generation();
+        this.channel = open(path);
+        this.channelKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        this.thread = new Thread(this::run, "log-writer-" + path.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * ログを書き込み待ちのキューに追加します。
+     * キューが満杯の場合は空きができるまで待ちます。待っている間に割り込まれてもログは捨てず、
+     * 追加した後で割り込み状態を戻します。
+     * 閉じられているかの確認からキューへの追加までを読み取りロックの中で行うため、
+     * 受け付けたログは{@link #close}が必ず書き込んでから閉じます。
+     *
+     * @param log 追加するログ
+     * @throws IllegalStateException ライターが既に閉じられている場合
+     */
+    public void append(Log log) {
+        boolean interrupted = false;
+        acceptLock.readLock().lock();
+        try {
+            if (closed.get()) {
+                throw new IllegalStateException("ログの書き込みは既に終了しています");
+            }
+            while (true) {
+                try {
+                    queue.put(log);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            progressLock.lock();
+            try {
+                enqueued++;
+            } finally {
+                progressLock.unlock();
+            }
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * これまでに追加した全てのログが書き込まれるまで待ちます。
+     */
+    public void flush() {
+        progressLock.lock();
+        try {
+            long target = enqueued;
+            boolean interrupted = false;
+            while (written + failed < target && thread.isAlive()) {
+                try {
+                    progressed.await(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    /**
+     * 書き込みに失敗して失われたログの件数を取得します。
+     *
+     * @return 失敗件数
+     */
+    public long failedCount() {
+        progressLock.lock();
+        try {
+            return failed;
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    /**
+     * 新しいログの受け付けを止め、残っているログを全て書き込んでからファイルを閉じます。
+     * 書き込み中にチャネルが閉じられないよう、書き込みスレッドには割り込まず自然に終了するのを待ちます。
+     * 受け付け中の{@link #append}がキューに追加し終えるまで待ってから受け付けを止めます。
+     */
+    @Override
+    public void close() throws IOException {
+        acceptLock.writeLock().lock();
+        try {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        flush();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void run() {
+        List<Log> batch = new ArrayList<>(batchSize);
+        while (!closed.get() || !queue.isEmpty()) {
+            if (!collect(batch)) {
+                continue;
+            }
+            int count = batch.size();
+            try {
+                writeBatch(batch);
+                record(count, 0);
+            } catch (IOException e) {
+                e.printStackTrace();
+                record(0, count);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 最初の1件を待ち、その後は件数か待ち時間の上限に達するまでログを集めます。
+     *
+     * @return 1件以上集まった場合はtrue
+     */
+    private boolean collect(List<Log> batch) {
+        try {
+            Log first = queue.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return false;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + maxDelayNanos;
+            while (batch.size() < batchSize) {
+                if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed.get()) {
+                    break;
+                }
+                Log next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            // 書き込みスレッドは割り込みでは止めず、closeされてキューが空になるまで続ける
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+        return !batch.isEmpty();
+    }
+
+    /**
+     * 集めたログをまとめて書き込みます。
+     * コンパクションでファイルが置き換えられていた場合は、新しいファイルを開き直してから書き込みます。
+     */
+    private void writeBatch(List<Log> batch) throws IOException {
+        fileLock.lockWrite();
+        fileLock.lockPublish();
+        try {
+            if (channelGeneration != fileLock.generation() || replacedByOtherProcess()) {
+                channel.close();
+                channel = open(path);
+                channelGeneration = fileLock.generation();
+                channelKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            }
+            buffer.clear();
+            if (LogDataAccess.endsWithoutNewline(channel)) {
+                put(new byte[] { '\n' });
+            }
+            encode(batch);
+            buffer.flip();
+            LogDataAccess.appendToEnd(channel, buffer);
+            if (durability == Durability.FSYNC) {
+                channel.force(false);
+            }
+        } finally {
+            fileLock.unlockPublish();
+            fileLock.unlockWrite();
+        }
+    }
+
+    /**
+     * 他のプロセスのコンパクションでファイルが置き換えられ、開いているチャネルが古いファイルを指しているかを判定します。
+     */
+    private boolean replacedByOtherProcess() throws IOException {
+        if (!Files.exists(path)) {
+            return true;
+        }
+        Object current = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        return current != null && !current.equals(channelKey);
+    }
+
+    private void encode(List<Log> batch) {
+        for (Log log : batch) {
+            line.setLength(0);
+            LogDataAccess.appendLine(line, log).append('\n');
+            put(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void put(byte[] bytes) {
+        if (buffer.remaining() < bytes.length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes.length));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        buffer.put(bytes);
+    }
+
+    private void record(long succeeded, long lost) {
+        progressLock.lock();
+        try {
+            written += succeeded;
+            failed += lost;
+            progressed.signalAll();
+        } finally {
+            progressLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package com.taskapp.dataaccess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * CSVファイルを1行ずつ読み進めるカーソルです。
+ * String.splitを使わずにバイト列から直接列を読み取り、整数列はバッファ上でそのまま数値に変換します。
+ * 文字列はUTF-8として明示的にデコードし、呼び出し側が取り出した列の分だけ生成するため、
+ * 整数列を比較するだけの走査では行ごとのオブジェクト生成がありません。
+ * 空行は読み飛ばし、行末のCRも取り除きます。
+ * 開いた時点のファイルサイズまでを読むため、読んでいる途中に追記された行は含みません。
+ * {@link ReadMode#MAPPED}で開いた場合はヒープへコピーせず、メモリマップしたバッファ上を直接走査します。
+ */
+final class CsvCursor implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int ROW_BUFFER_SIZE = 512;
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COMMA = ',';
+
+    private final FileChannel channel;
+    /** 閉じるときにチャネルも閉じるか。範囲を読むカーソルは呼び出し側のチャネルを共有するため閉じません */
+    private final boolean ownsChannel;
+    private final MappedCsvFile.Segments segments;
+    private int segmentIndex;
+
+    private ByteBuffer buffer;
+    /** バッファの先頭が指すファイル上の位置 */
+    private long bufferOffset;
+    /** 次にチャネルから読み込むファイル上の位置 */
+    private long readPosition;
+    /** 開いた時点のファイルサイズ。後から追記された部分は読みません */
+    private final long endPosition;
+    private boolean endOfInput;
+
+    private int rowStart;
+    private int rowEnd;
+    private int contentEnd;
+    private int fieldPosition;
+    private boolean hasField;
+
+    private byte[] scratch = new byte[256];
+
+    private CsvCursor(FileChannel channel, int bufferSize, long startOffset, long endOffset, boolean ownsChannel) {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.endPosition = endOffset;
+        this.segments = null;
+        this.bufferOffset = startOffset;
+        this.readPosition = startOffset;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.limit(0);
+        this.rowEnd = -1;
+    }
+
+    private CsvCursor(MappedCsvFile.Segments segments) {
+        this.channel = null;
+        this.ownsChannel = false;
+        this.endPosition = -1;
+        this.segments = segments;
+        if (segments.count() == 0) {
+            this.buffer = ByteBuffer.allocate(0);
+            this.endOfInput = true;
+        } else {
+            this.buffer = segments.segment(0);
+            this.endOfInput = segments.reachesEnd(0);
+        }
+        this.rowEnd = -1;
+    }
+
+    /**
+     * ファイルを開いてカーソルを作成します。
+     *
+     * @param path 読み込むCSVファイル
+     * @return 先頭行の手前に位置するカーソル
+     * @throws IOException ファイルを開けなかった場合
+     */
+    static CsvCursor open(Path path) throws IOException {
+        return open(path, ReadMode.BUFFERED);
+    }
+
+    /**
+     * 読み込み方式を指定してファイルを開き、カーソルを作成します。
+     *
+     * @param path     読み込むCSVファイル
+     * @param readMode 読み込み方式
+     * @return 先頭行の手前に位置するカーソル
+     * @throws IOException ファイルを開けなかった場合
+     */
+    static CsvCursor open(Path path, ReadMode readMode) throws IOException {
+        if (readMode == ReadMode.MAPPED) {
+            return new CsvCursor(MappedCsvFile.of(path).map());
+        }
+        return open(path, DEFAULT_BUFFER_SIZE, 0);
+    }
+
+    /**
+     * ファイルの途中の位置からカーソルを作成します。
+     * 索引から得た行の先頭を指定して1行だけ読む用途を想定し、小さなバッファで読み込みます。
+     *
+     * @param path   読み込むCSVファイル
+     * @param offset 読み込みを始めるバイト位置
+     * @return 指定位置の手前に位置するカーソル
+     * @throws IOException ファイルを開けなかった場合
+     */
+    static CsvCursor openAt(Path path, long offset) throws IOException {
+        return open(path, ROW_BUFFER_SIZE, offset);
+    }
+
+    /**
+     * ファイルの途中の位置から、大きなバッファで続きの行を走査するカーソルを作成します。
+     *
+     * @param path   読み込むCSVファイル
+     * @param offset 読み込みを始めるバイト位置
+     * @return 指定位置の手前に位置するカーソル
+     * @throws IOException ファイルを開けなかった場合
+     */
+    static CsvCursor scanFrom(Path path, long offset) throws IOException {
+        return open(path, DEFAULT_BUFFER_SIZE, offset);
+    }
+
+    /**
+     * 開いているチャネルの指定した範囲だけを走査するカーソルを作成します。
+     * 範囲の終わりは行の区切りに揃えておく必要があります。
+     * チャネルは共有したまま位置を指定して読むため、同じチャネルから複数のスレッドで別々の範囲を同時に読めます。
+     * カーソルを閉じてもチャネルは閉じません。
+     *
+     * @param channel 読み込むチャネル
+     * @param start   読み込みを始めるバイト位置
+     * @param end     読み込みを終えるバイト位置(この位置は含みません)
+     * @return 範囲の先頭の行の手前に位置するカーソル
+     */
+    static CsvCursor range(FileChannel channel, long start, long end) {
+        return new CsvCursor(channel, DEFAULT_BUFFER_SIZE, start, end, false);
+    }
+
+    private static CsvCursor open(Path path, int bufferSize, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new CsvCursor(channel, bufferSize, offset, channel.size(), true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 次の行へ進みます。
+     *
+     * @return 次の行があればtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    boolean nextRow() throws IOException {
+        while (true) {
+            rowStart = rowEnd + 1;
+            if (segments != null && rowStart >= MappedCsvFile.SEGMENT_SIZE && segmentIndex + 1 < segments.count()) {
+                nextSegment();
+            }
+            int newline = indexOfNewline(rowStart);
+            while (newline < 0 && !endOfInput) {
+                fill();
+                newline = indexOfNewline(rowStart);
+            }
+            if (newline < 0) {
+                if (rowStart >= buffer.limit()) {
+                    rowEnd = buffer.limit() - 1;
+                    hasField = false;
+                    return false;
+                }
+                newline = buffer.limit();
+            }
+            rowEnd = newline;
+            contentEnd = newline;
+            if (contentEnd > rowStart && buffer.get(contentEnd - 1) == CR) {
+                contentEnd--;
+            }
+            if (contentEnd > rowStart) {
+                fieldPosition = rowStart;
+                hasField = true;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 現在の行の列数を数えます。
+     *
+     * @return 列数
+     */
+    int fieldCount() {
+        int count = 1;
+        for (int i = rowStart; i < contentEnd; i++) {
+            if (buffer.get(i) == COMMA) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 現在の列を整数として読み取り、次の列へ進みます。
+     *
+     * @return 列の値
+     * @throws NumberFormatException 整数として解釈できない場合
+     */
+    int nextInt() {
+        int end = fieldEnd();
+        int start = skipBlank(fieldPosition, end);
+        int last = trimBlank(start, end);
+        if (start == last) {
+            throw new NumberFormatException("空の列は数値に変換できません");
+        }
+        boolean negative = buffer.get(start) == '-';
+        int i = negative || buffer.get(start) == '+' ? start + 1 : start;
+        if (i == last) {
+            throw new NumberFormatException(fieldText(start, last));
+        }
+        long value = 0;
+        for (; i < last; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(fieldText(start, last));
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException(fieldText(start, last));
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException(fieldText(start, last));
+        }
+        advance(end);
+        return (int) value;
+    }
+
+    /**
+     * 現在の列を前後の空白を除いた文字列として読み取り、次の列へ進みます。
+     *
+     * @return 列の値
+     */
+    String nextString() {
+        int end = fieldEnd();
+        int start = skipBlank(fieldPosition, end);
+        String value = fieldText(start, trimBlank(start, end));
+        advance(end);
+        return value;
+    }
+
+    /**
+     * 現在の列の前後の空白を除いたバイト列を、デコードせずに配列へコピーして次の列へ進みます。
+     * 配列には{@link #fieldLength()}バイト以上の空きを用意してください。
+     *
+     * @param target コピー先の配列
+     * @param offset コピー先の位置
+     * @return コピーしたバイト数
+     */
+    int nextBytes(byte[] target, int offset) {
+        int end = fieldEnd();
+        int start = skipBlank(fieldPosition, end);
+        int length = trimBlank(start, end) - start;
+        buffer.get(start, target, offset, length);
+        advance(end);
+        return length;
+    }
+
+    /**
+     * 現在の列をyyyy-MM-dd形式の日付として読み取り、次の列へ進みます。
+     *
+     * @return 列の値
+     */
+    LocalDate nextDate() {
+        int end = fieldEnd();
+        int start = skipBlank(fieldPosition, end);
+        int last = trimBlank(start, end);
+        LocalDate date;
+        if (last - start == 10 && buffer.get(start + 4) == '-' && buffer.get(start + 7) == '-') {
+            date = LocalDate.of(digits(start, 4), digits(start + 5, 2), digits(start + 8, 2));
+        } else {
+            date = LocalDate.parse(fieldText(start, last));
+        }
+        advance(end);
+        return date;
+    }
+
+    /**
+     * 現在の列を読み飛ばします。
+     */
+    void skipField() {
+        advance(fieldEnd());
+    }
+
+    /**
+     * 現在の列の先頭のファイル上の位置を取得します。
+     *
+     * @return バイト単位の位置
+     */
+    long fieldOffset() {
+        return bufferOffset + fieldPosition;
+    }
+
+    /**
+     * 現在の列の、前後の空白を含むバイト数を取得します。
+     *
+     * @return バイト数
+     */
+    int fieldLength() {
+        return fieldEnd() - fieldPosition;
+    }
+
+    /**
+     * 現在の行の先頭のファイル上の位置を取得します。
+     *
+     * @return バイト単位の位置
+     */
+    long rowOffset() {
+        return bufferOffset + rowStart;
+    }
+
+    /**
+     * 現在の行の直後のファイル上の位置を取得します。最後まで読み終えた後は読み込んだ範囲の末尾を指します。
+     *
+     * @return バイト単位の位置
+     */
+    long position() {
+        return bufferOffset + Math.min(rowEnd + 1, buffer.limit());
+    }
+
+    /**
+     * 指定した位置の行の手前へ移動します。
+     * 位置が読み込み済みのバッファ内にあればそのまま使い、なければ次の{@link #nextRow()}で読み込み直します。
+     * 索引から得た昇順の位置を順に読む場合は、近い行同士で読み込みをまとめられます。
+     *
+     * @param offset 行の先頭のバイト位置
+     */
+    void seek(long offset) {
+        if (segments != null) {
+            throw new UnsupportedOperationException("マップ読み込みのカーソルは移動できません");
+        }
+        long relative = offset - bufferOffset;
+        if (relative >= 0 && relative < buffer.limit()) {
+            rowEnd = (int) relative - 1;
+        } else {
+            bufferOffset = offset;
+            readPosition = offset;
+            buffer.limit(0);
+            rowEnd = -1;
+            endOfInput = false;
+        }
+        hasField = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    private int indexOfNewline(int from) {
+        int limit = buffer.limit();
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == LF) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 読み終えた部分を捨ててチャネルから続きを読み込みます。
+     * 1行がバッファに収まらない場合はバッファを拡張します。
+     * マップ読み込みではセグメントの重なりを超える行は扱えないため例外とします。
+     */
+    private void fill() throws IOException {
+        if (segments != null) {
+            throw new IOException("行が" + MappedCsvFile.MAX_ROW_LENGTH + "バイトを超えているためマップ読み込みできません");
+        }
+        int remaining = buffer.limit() - rowStart;
+        if (rowStart == 0 && remaining == buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.position(0);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.position(rowStart);
+            buffer.compact();
+        }
+        bufferOffset += rowStart;
+        rowEnd -= rowStart;
+        rowStart = 0;
+
+        buffer.limit((int) Math.min(buffer.capacity(), remaining + Math.max(0, endPosition - readPosition)));
+        buffer.position(remaining);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) {
+                endOfInput = true;
+                break;
+            }
+            readPosition += read;
+        }
+        if (readPosition >= endPosition) {
+            endOfInput = true;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * 次のセグメントへ移ります。セグメントは重ねてマップしているため、移った先の位置から行を探し直せます。
+     */
+    private void nextSegment() {
+        int shift = (int) MappedCsvFile.SEGMENT_SIZE;
+        segmentIndex++;
+        buffer = segments.segment(segmentIndex);
+        bufferOffset += shift;
+        rowStart -= shift;
+        rowEnd -= shift;
+        endOfInput = segments.reachesEnd(segmentIndex);
+    }
+
+    private int fieldEnd() {
+        if (!hasField) {
+            throw new IllegalStateException("行の列数が不足しています");
+        }
+        for (int i = fieldPosition; i < contentEnd; i++) {
+            if (buffer.get(i) == COMMA) {
+                return i;
+            }
+        }
+        return contentEnd;
+    }
+
+    private void advance(int fieldEnd) {
+        fieldPosition = fieldEnd + 1;
+        hasField = fieldEnd < contentEnd;
+    }
+
+    private int skipBlank(int from, int to) {
+        while (from < to && (buffer.get(from) & 0xff) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimBlank(int from, int to) {
+        while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private int digits(int from, int length) {
+        int value = 0;
+        for (int i = from; i < from + length; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(fieldText(from, from + length));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String fieldText(int from, int to) {
+        int length = to - from;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + from, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
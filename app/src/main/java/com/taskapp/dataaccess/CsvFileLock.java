@@ -0,0 +1,298 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CSVファイルへの読み書きを、スレッド間とプロセス間の両方で排他するためのロックです。
+ * 同じファイルに対するロックはDataAccessのインスタンス間で共有されます。
+ * データファイルは書き直しのたびに別のファイルで置き換えるため、ロックには「データファイルのパス + .lock」の
+ * 別ファイルを使い、その中の2つの領域をFileChannel.lockでロックします。
+ * <ul>
+ * <li>書き込み領域: 書き込み側だけが排他で取得し、読み込み・変更・書き出しの一連の処理を直列化します</li>
+ * <li>公開領域: 書き込み側は追記や置き換えの瞬間だけ排他で取得し、読み込み側はファイルを開く間だけ共有で取得します</li>
+ * </ul>
+ * 読み込み側は開いた時点の内容を読み続けるため、ロックを保持するのは開く間だけで済み、
+ * 書き込み側が一時ファイルを書き出している間も一覧の取得は止まりません。
+ * ファイルを別のファイルで置き換えたときは世代番号を進め、ファイルを開いたままにしている書き込み側が開き直せるようにします。
+ * 他のプロセスのロックの解放を待つ間は内部のモニターを保持しません。保持したまま待つと、他のプロセスを待つ間に
+ * 同じプロセスの別のスレッドがロックを解放できず、プロセスをまたいだデッドロックになるためです。
+ */
+final class CsvFileLock {
+    private static final Map<Path, CsvFileLock> LOCKS = new ConcurrentHashMap<>();
+
+    private static final long WRITE_REGION = 0;
+    private static final long PUBLISH_REGION = 1;
+
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Path lockPath;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantReadWriteLock publishLock = new ReentrantReadWriteLock();
+    private final ReentrantLock sharedAcquireLock = new ReentrantLock();
+    private final Object channelMonitor = new Object();
+    private FileChannel channel;
+    private FileLock writeFileLock;
+    private FileLock publishFileLock;
+    private int sharedHolders;
+    private volatile long generation;
+
+    private final LongAdder sharedAcquisitions = new LongAdder();
+    private final LongAdder sharedWaitNanos = new LongAdder();
+    private final LongAdder exclusiveAcquisitions = new LongAdder();
+    private final LongAdder exclusiveWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    private CsvFileLock(Path path) {
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+    }
+
+    /**
+     * 指定したファイルに対応するロックを取得します。
+     *
+     * @param path CSVファイルのパス
+     * @return 共有されたロック
+     */
+    static CsvFileLock of(Path path) {
+        return LOCKS.computeIfAbsent(path.toAbsolutePath().normalize(), CsvFileLock::new);
+    }
+
+    /**
+     * 書き込みを始めます。他のスレッドや他のプロセスの書き込みが終わるまで待ちます。
+     * 同じスレッドから重ねて呼び出せます。
+     */
+    void lockWrite() {
+        long start = System.nanoTime();
+        writeLock.lock();
+        if (writeLock.getHoldCount() == 1) {
+            try {
+                FileLock lock = lockRegion(WRITE_REGION, false);
+                synchronized (channelMonitor) {
+                    writeFileLock = lock;
+                }
+            } catch (IOException e) {
+                writeLock.unlock();
+                throw new UncheckedIOException(e);
+            }
+        }
+        recordWait(exclusiveAcquisitions, exclusiveWaitNanos, start);
+    }
+
+    void unlockWrite() {
+        try {
+            if (writeLock.getHoldCount() == 1) {
+                synchronized (channelMonitor) {
+                    release(writeFileLock);
+                    writeFileLock = null;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 読み込むファイルを開く間、追記や置き換えが行われないようにします。
+     * ファイルを開いたらすぐに{@link #unlockRead()}を呼び出してください。
+     */
+    void lockRead() {
+        long start = System.nanoTime();
+        publishLock.readLock().lock();
+        if (publishLock.isWriteLockedByCurrentThread()) {
+            // 公開中のスレッドはプロセス間でも既に排他で保持している
+            return;
+        }
+        try {
+            acquireShared();
+        } catch (IOException e) {
+            publishLock.readLock().unlock();
+            throw new UncheckedIOException(e);
+        }
+        recordWait(sharedAcquisitions, sharedWaitNanos, start);
+    }
+
+    void unlockRead() {
+        try {
+            if (!publishLock.isWriteLockedByCurrentThread()) {
+                synchronized (channelMonitor) {
+                    if (--sharedHolders == 0) {
+                        release(publishFileLock);
+                        publishFileLock = null;
+                    }
+                }
+            }
+        } finally {
+            publishLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 追記や置き換えの間、読み込み側がファイルを開かないようにします。
+     * {@link #lockWrite()}を保持した状態で、ファイルを変更する直前に呼び出してください。
+     */
+    void lockPublish() {
+        long start = System.nanoTime();
+        publishLock.writeLock().lock();
+        if (publishLock.getWriteHoldCount() == 1) {
+            try {
+                FileLock lock = lockRegion(PUBLISH_REGION, false);
+                synchronized (channelMonitor) {
+                    publishFileLock = lock;
+                }
+            } catch (IOException e) {
+                publishLock.writeLock().unlock();
+                throw new UncheckedIOException(e);
+            }
+        }
+        recordWait(exclusiveAcquisitions, exclusiveWaitNanos, start);
+    }
+
+    void unlockPublish() {
+        try {
+            if (publishLock.getWriteHoldCount() == 1) {
+                synchronized (channelMonitor) {
+                    release(publishFileLock);
+                    publishFileLock = null;
+                }
+            }
+        } finally {
+            publishLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ファイルが置き換えられた回数を取得します。
+     *
+     * @return 世代番号
+     */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * ファイルを置き換えたことを記録します。書き込みロックを保持した状態で呼び出してください。
+     */
+    void replaced() {
+        generation++;
+    }
+
+    /**
+     * これまでにロックの取得を待った時間の集計を取得します。
+     *
+     * @return 待ち時間の集計
+     */
+    LockWaitStats waitStats() {
+        return new LockWaitStats(sharedAcquisitions.sum(), sharedWaitNanos.sum(), exclusiveAcquisitions.sum(),
+                exclusiveWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    /**
+     * プロセス内の読み込み側で1つの共有ロックを使い回します。
+     * 最初の読み込み側だけがファイルロックを待ち、その間に来た読み込み側はsharedAcquireLockで待ちます。
+     * 解放はsharedAcquireLockを使わないため、待っている間も他のスレッドはロックを解放できます。
+     */
+    private void acquireShared() throws IOException {
+        if (joinShared()) {
+            return;
+        }
+        sharedAcquireLock.lock();
+        try {
+            if (joinShared()) {
+                return;
+            }
+            // 保持者がいない間は解放も起きないため、モニターの外で待っても状態は変わらない
+            FileLock lock = lockRegion(PUBLISH_REGION, true);
+            synchronized (channelMonitor) {
+                publishFileLock = lock;
+                sharedHolders = 1;
+            }
+        } finally {
+            sharedAcquireLock.unlock();
+        }
+    }
+
+    private boolean joinShared() {
+        synchronized (channelMonitor) {
+            if (sharedHolders == 0) {
+                return false;
+            }
+            sharedHolders++;
+            return true;
+        }
+    }
+
+    /**
+     * ロックファイルの1バイトの領域をロックします。
+     * 他のプロセスの解放を待つことがあるため、channelMonitorを保持せずに呼び出してください。
+     * OSのファイルロックはプロセス単位のため、FileChannel.lockで待つと、別々のスレッドが別々の領域を待っているだけでも
+     * プロセス同士の循環とみなされて失敗することがあります。そのためtryLockを間隔を延ばしながら繰り返します。
+     * 割り込みでチャネルが閉じられていた場合は開き直します。
+     */
+    private FileLock lockRegion(long position, boolean shared) throws IOException {
+        long backoffNanos = MIN_BACKOFF_NANOS;
+        while (true) {
+            if (Thread.currentThread().isInterrupted()) {
+                // 割り込まれた状態でチャネルを操作すると、他のスレッドのロックごとチャネルが閉じられる
+                throw new InterruptedIOException("ロックの取得中に割り込まれました: " + lockPath);
+            }
+            FileChannel current = openChannel();
+            try {
+                FileLock lock = current.tryLock(position, 1, shared);
+                if (lock != null) {
+                    return lock;
+                }
+            } catch (ClosedChannelException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                continue;
+            }
+            LockSupport.parkNanos(backoffNanos);
+            backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        synchronized (channelMonitor) {
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+    }
+
+    private static void release(FileLock lock) {
+        if (lock == null || !lock.isValid()) {
+            return;
+        }
+        try {
+            lock.release();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void recordWait(LongAdder acquisitions, LongAdder waitNanos, long start) {
+        long waited = System.nanoTime() - start;
+        acquisitions.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+    }
+}
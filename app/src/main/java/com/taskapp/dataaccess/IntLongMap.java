@@ -0,0 +1,157 @@
+package com.taskapp.dataaccess;
+
+import java.util.Arrays;
+
+/**
+ * intのキーとlongの値を対応付けるオープンアドレス法のハッシュマップです。
+ * キーや値をボクシングしないため、HashMap&lt;Integer, Long&gt;と比べて1件あたりのメモリが数分の1で済みます。
+ * スレッドセーフではありません。
+ */
+final class IntLongMap {
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int threshold;
+
+    IntLongMap() {
+        this(16);
+    }
+
+    IntLongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * キーに対応する値を取得します。
+     *
+     * @param key          キー
+     * @param defaultValue キーが存在しない場合に返す値
+     * @return 値
+     */
+    long get(int key, long defaultValue) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * キーに値を設定します。
+     *
+     * @param key   キー
+     * @param value 値
+     */
+    void put(int key, long value) {
+        int slot = slotFor(key);
+        if (!used[slot]) {
+            insert(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+    }
+
+    /**
+     * キーが存在しない場合だけ値を設定します。
+     *
+     * @param key   キー
+     * @param value 値
+     * @return 値を設定した場合はtrue
+     */
+    boolean putIfAbsent(int key, long value) {
+        int slot = slotFor(key);
+        if (used[slot]) {
+            return false;
+        }
+        insert(slot, key, value);
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 内部のスロット数を取得します。{@link #occupied(int)}と組み合わせて全要素を走査するために使います。
+     *
+     * @return スロット数
+     */
+    int slots() {
+        return keys.length;
+    }
+
+    boolean occupied(int slot) {
+        return used[slot];
+    }
+
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    long valueAt(int slot) {
+        return values[slot];
+    }
+
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void insert(int slot, int key, long value) {
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size > threshold) {
+            rehash();
+        }
+    }
+
+    private int find(int key) {
+        int slot = slotFor(key);
+        return used[slot] ? slot : -1;
+    }
+
+    /**
+     * キーが格納されているスロット、またはキーを格納すべき空きスロットを探します。
+     */
+    private int slotFor(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
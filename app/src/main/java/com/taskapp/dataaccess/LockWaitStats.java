@@ -0,0 +1,78 @@
+package com.taskapp.dataaccess;
+
+/**
+ * ファイルロックの取得を待った時間の集計です。
+ * 取得した時点の値を保持し、後から変化することはありません。
+ *
+ * @see com.taskapp.dataaccess.TaskDataAccess#lockWaitStats()
+ * @see com.taskapp.dataaccess.UserDataAccess#lockWaitStats()
+ * @see com.taskapp.dataaccess.LogDataAccess#lockWaitStats()
+ */
+public final class LockWaitStats {
+    private final long sharedAcquisitions;
+    private final long sharedWaitNanos;
+    private final long exclusiveAcquisitions;
+    private final long exclusiveWaitNanos;
+    private final long maxWaitNanos;
+
+    LockWaitStats(long sharedAcquisitions, long sharedWaitNanos, long exclusiveAcquisitions,
+            long exclusiveWaitNanos, long maxWaitNanos) {
+        this.sharedAcquisitions = sharedAcquisitions;
+        this.sharedWaitNanos = sharedWaitNanos;
+        this.exclusiveAcquisitions = exclusiveAcquisitions;
+        this.exclusiveWaitNanos = exclusiveWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * 読み込みのために共有ロックを取得した回数を取得します。
+     *
+     * @return 取得回数
+     */
+    public long getSharedAcquisitions() {
+        return sharedAcquisitions;
+    }
+
+    /**
+     * 共有ロックの取得を待った時間の合計を取得します。
+     *
+     * @return 待ち時間の合計(ナノ秒)
+     */
+    public long getSharedWaitNanos() {
+        return sharedWaitNanos;
+    }
+
+    /**
+     * 書き込みのために排他ロックを取得した回数を取得します。
+     *
+     * @return 取得回数
+     */
+    public long getExclusiveAcquisitions() {
+        return exclusiveAcquisitions;
+    }
+
+    /**
+     * 排他ロックの取得を待った時間の合計を取得します。
+     *
+     * @return 待ち時間の合計(ナノ秒)
+     */
+    public long getExclusiveWaitNanos() {
+        return exclusiveWaitNanos;
+    }
+
+    /**
+     * 1回の取得で待った時間の最大値を取得します。
+     *
+     * @return 最大の待ち時間(ナノ秒)
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "shared=" + sharedAcquisitions + " (" + sharedWaitNanos / 1_000_000 + "ms), exclusive="
+                + exclusiveAcquisitions + " (" + exclusiveWaitNanos / 1_000_000 + "ms), max="
+                + maxWaitNanos / 1_000_000 + "ms";
+    }
+}
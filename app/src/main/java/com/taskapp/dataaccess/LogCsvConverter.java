@@ -0,0 +1,71 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * ログCSVとバイナリのセグメントファイルを相互に変換します。
+ *
+ * @see com.taskapp.dataaccess.LogFormat
+ */
+public final class LogCsvConverter {
+    private LogCsvConverter() {
+    }
+
+    /**
+     * ログCSVの全ての行をセグメントファイルに追記します。
+     * ディレクトリに既にセグメントがある場合は、その後ろに追記します。
+     *
+     * @param csv       変換元のログCSV
+     * @param directory セグメントファイルを置くディレクトリ
+     * @return 変換した件数
+     * @throws IOException 読み込みまたは書き込みに失敗した場合
+     */
+    public static long toBinary(Path csv, Path directory) throws IOException {
+        long count = 0;
+        try (CsvCursor cursor = CsvCursor.open(csv);
+                LogSegmentWriter writer = LogSegmentWriter.open(directory)) {
+            cursor.nextRow();
+            while (cursor.nextRow()) {
+                writer.append(cursor.nextInt(), cursor.nextInt(), cursor.nextInt(), cursor.nextDate().toEpochDay());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * セグメントファイルの全てのレコードをログCSVに書き出します。
+     * 一時ファイルに書き出してから置き換えるため、途中で失敗しても既存のCSVは壊れません。
+     *
+     * @param directory 変換元のセグメントファイルを置くディレクトリ
+     * @param csv       書き出すログCSV
+     * @return 変換した件数
+     * @throws IOException 読み込みまたは書き込みに失敗した場合
+     */
+    public static long toCsv(Path directory, Path csv) throws IOException {
+        long count = 0;
+        Path tmp = csv.resolveSibling(csv.getFileName() + ".tmp");
+        try (LogSegmentReader reader = LogSegmentReader.open(directory);
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            StringBuilder line = new StringBuilder(64 * 1024);
+            line.append(LogDataAccess.HEADER).append('\n');
+            while (reader.next()) {
+                LogDataAccess.appendLine(line, reader.toLog()).append('\n');
+                count++;
+                if (line.length() >= 32 * 1024) {
+                    out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+                    line.setLength(0);
+                }
+            }
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Files.move(tmp, csv, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+}
@@ -1,16 +1,67 @@
 package com.taskapp.dataaccess;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.taskapp.metrics.Metrics;
+import com.taskapp.metrics.OperationMetrics;
 import com.taskapp.model.Log;
 
-public class LogDataAccess {
+public class LogDataAccess implements Closeable {
+    static final String HEADER = "Task_Code,Change_User_Code,Status,Change_Date";
+
+    /** 削除してからコンパクションを始めるまでの待ち時間。続けて削除された分をまとめて消すために待ちます */
+    private static final long COMPACTION_DELAY_MILLIS = 1000;
+
+    private static final OperationMetrics SAVE = Metrics.operation("LogDataAccess.save");
+    private static final OperationMetrics SAVE_ALL = Metrics.operation("LogDataAccess.saveAll");
+    private static final OperationMetrics FIND_BY_TASK_CODE = Metrics.operation("LogDataAccess.findByTaskCode");
+
+    private static final ScheduledExecutorService COMPACTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final String filePath;
 
+    private final LogFormat format;
+
+    private final ReadMode readMode;
+
+    private final CsvFileLock fileLock;
+
+    private final LogTombstones tombstones;
+
+    private final LogIndex logIndex;
+
+    private final AsyncLogWriter asyncWriter;
+
     public LogDataAccess() {
-        filePath = "app/src/main/resources/logs.csv";
+        this("app/src/main/resources/logs.csv", ReadMode.BUFFERED);
     }
 
     /**
@@ -19,55 +70,543 @@ public class LogDataAccess {
      * @param filePath
      */
     public LogDataAccess(String filePath) {
+        this(filePath, ReadMode.BUFFERED);
+    }
+
+    /**
+     * 読み込み方式を指定してインスタンスを作成します。
+     *
+     * @param filePath ログCSVのパス
+     * @param readMode findAll・streamで利用する読み込み方式
+     */
+    public LogDataAccess(String filePath, ReadMode readMode) {
+        this(filePath, LogFormat.CSV, readMode);
+    }
+
+    /**
+     * 保存形式を指定してインスタンスを作成します。
+     * {@link LogFormat#BINARY}の場合はセグメントファイルを置くディレクトリを指定します。
+     *
+     * @param path   ログCSVのパス、またはセグメントファイルを置くディレクトリ
+     * @param format 保存形式
+     */
+    public LogDataAccess(String path, LogFormat format) {
+        this(path, format, ReadMode.BUFFERED);
+    }
+
+    private LogDataAccess(String filePath, LogFormat format, ReadMode readMode) {
         this.filePath = filePath;
-        
+        this.format = format;
+        this.readMode = readMode;
+        this.fileLock = CsvFileLock.of(Paths.get(filePath));
+        this.tombstones = LogTombstones.of(Paths.get(filePath));
+        this.logIndex = LogIndex.of(Paths.get(filePath));
+        this.asyncWriter = null;
+    }
+
+    /**
+     * ログの保存をバックグラウンドでまとめて行うインスタンスを作成します。
+     * 終了時には{@link #close()}を呼び出し、溜まっているログを書き込んでください。
+     *
+     * @see com.taskapp.dataaccess.AsyncLogWriter
+     * @param filePath       ログCSVのパス
+     * @param queueCapacity  書き込み待ちにできる最大件数。超えるとsaveが待たされます
+     * @param batchSize      1回にまとめて書き込む最大件数
+     * @param maxDelayMillis ログを受け取ってから書き込むまでの最大待ち時間
+     * @param durability     まとめ書きごとの永続化の度合い
+     * @throws IOException ログCSVを開けなかった場合
+     */
+    public LogDataAccess(String filePath, int queueCapacity, int batchSize, long maxDelayMillis,
+            AsyncLogWriter.Durability durability) throws IOException {
+        this.filePath = filePath;
+        this.format = LogFormat.CSV;
+        this.readMode = ReadMode.BUFFERED;
+        this.fileLock = CsvFileLock.of(Paths.get(filePath));
+        this.tombstones = LogTombstones.of(Paths.get(filePath));
+        this.logIndex = LogIndex.of(Paths.get(filePath));
+        this.asyncWriter = new AsyncLogWriter(Paths.get(filePath), fileLock, queueCapacity, batchSize,
+                maxDelayMillis, durability);
     }
 
     /**
      * ログをCSVファイルに保存します。
+     * 非同期モードの場合は書き込み待ちのキューに追加して戻ります。
      *
      * @param log 保存するログ
      */
     public void save(Log log) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            String line = log.getTaskCode() + "," +
-                    log.getChangeUserCode() + "," +
-                    log.getStatus() + "," +
-                    log.getChangeDate().toString();
-            writer.write(line);
-            writer.newLine();
+        long start = SAVE.start();
+        if (asyncWriter != null) {
+            asyncWriter.append(log);
+            SAVE.record(start);
+            return;
+        }
+        fileLock.lockWrite();
+        fileLock.lockPublish();
+        try {
+            if (format == LogFormat.BINARY) {
+                try (LogSegmentWriter writer = LogSegmentWriter.open(Paths.get(filePath))) {
+                    writer.append(log);
+                }
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                String line = (endsWithoutNewline(channel) ? "\n" : "") + createLine(log) + "\n";
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                appendToEnd(channel, ByteBuffer.wrap(bytes));
+                SAVE.addBytesWritten(bytes.length);
+            }
         } catch (IOException e) {
             e.printStackTrace();
+            SAVE.error();
+        } finally {
+            fileLock.unlockPublish();
+            fileLock.unlockWrite();
+            SAVE.record(start);
+        }
+    }
+
+    /**
+     * 複数のログをまとめて保存します。
+     * 同期モードでは全ての行を1つのバッファに組み立て、ファイルを1回開いて1回の追記で書き込みます。
+     * 非同期モードの場合は書き込み待ちのキューに追加し、書き込みスレッドがまとめて書き込みます。
+     *
+     * @param logs 保存するログ
+     */
+    public void saveAll(List<Log> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        long start = SAVE_ALL.start();
+        if (asyncWriter != null) {
+            for (Log log : logs) {
+                asyncWriter.append(log);
+            }
+            SAVE_ALL.record(start);
+            return;
+        }
+        fileLock.lockWrite();
+        fileLock.lockPublish();
+        try {
+            if (format == LogFormat.BINARY) {
+                try (LogSegmentWriter writer = LogSegmentWriter.open(Paths.get(filePath))) {
+                    for (Log log : logs) {
+                        writer.append(log);
+                    }
+                }
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                StringBuilder lines = new StringBuilder(logs.size() * 24);
+                if (endsWithoutNewline(channel)) {
+                    lines.append('\n');
+                }
+                for (Log log : logs) {
+                    lines.append(createLine(log)).append('\n');
+                }
+                byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+                appendToEnd(channel, ByteBuffer.wrap(bytes));
+                SAVE_ALL.addBytesWritten(bytes.length);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            SAVE_ALL.error();
+        } finally {
+            fileLock.unlockPublish();
+            fileLock.unlockWrite();
+            SAVE_ALL.record(start);
+        }
+    }
+
+    /**
+     * 非同期モードで保存を受け付けた全てのログが書き込まれるまで待ちます。
+     * 同期モードの場合は何もしません。
+     */
+    public void flush() {
+        if (asyncWriter != null) {
+            asyncWriter.flush();
+        }
+    }
+
+    /**
+     * 非同期モードの場合は残っているログを書き込み、書き込みスレッドを終了します。
+     */
+    @Override
+    public void close() throws IOException {
+        if (asyncWriter != null) {
+            asyncWriter.close();
         }
     }
 
     /**
      * すべてのログを取得します。
+     * 削除済みのタスクのログは含みません。
      *
+     * @see #stream()
      * @return すべてのログのリスト
      */
-    // public List<Log> findAll() {
-    // try () {
+    public List<Log> findAll() {
+        if (format == LogFormat.CSV && readMode == ReadMode.BUFFERED) {
+            return loadAllParallel();
+        }
+        try (Stream<Log> logs = stream()) {
+            return logs.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 全てのログを、ファイルを改行で揃えたチャンクに分けて並列に読み込みます。
+     * 削除済みのタスクのログは各チャンクの解析中に取り除きます。
+     *
+     * @see com.taskapp.dataaccess.ParallelCsvLoader
+     */
+    private List<Log> loadAllParallel() {
+        flush();
+        IntLongMap deleted;
+        FileChannel channel;
+        // 墓標はファイルの位置に結び付いているため、コンパクションの前後が混ざらないようロックを取って揃える
+        fileLock.lockRead();
+        try {
+            deleted = tombstones.snapshot();
+            channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            fileLock.unlockRead();
+        }
+        try (channel) {
+            return ParallelCsvLoader.load(channel, cursor -> {
+                long offset = cursor.rowOffset();
+                int taskCode = cursor.nextInt();
+                if (LogTombstones.isDeleted(deleted, taskCode, offset)) {
+                    return null;
+                }
+                return new Log(taskCode, cursor.nextInt(), cursor.nextInt(), cursor.nextDate());
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * すべてのログを1行ずつ読み込むストリームを取得します。
+     * 行はストリームを消費した分だけ読み込むため、ファイル全体をメモリに載せることはありません。
+     * ファイルを開いたままにするため、try-with-resourcesで閉じてください。
+     * 削除済みのタスクのログは読み込み時に取り除きます。
+     *
+     * @return ログのストリーム
+     */
+    public Stream<Log> stream() {
+        flush();
+        if (format == LogFormat.BINARY) {
+            return streamBinary();
+        }
+        IntLongMap deleted;
+        CsvCursor cursor;
+        // 墓標はファイルの位置に結び付いているため、コンパクションの前後が混ざらないようロックを取って揃える
+        fileLock.lockRead();
+        try {
+            deleted = tombstones.snapshot();
+            cursor = CsvCursor.open(Paths.get(filePath), readMode);
+            cursor.nextRow();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        } finally {
+            fileLock.unlockRead();
+        }
+        Spliterator<Log> rows = new Spliterators.AbstractSpliterator<Log>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Log> action) {
+                try {
+                    while (cursor.nextRow()) {
+                        long offset = cursor.rowOffset();
+                        int taskCode = cursor.nextInt();
+                        if (LogTombstones.isDeleted(deleted, taskCode, offset)) {
+                            continue;
+                        }
+                        action.accept(new Log(taskCode, cursor.nextInt(), cursor.nextInt(), cursor.nextDate()));
+                        return true;
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private Stream<Log> streamBinary() {
+        IntLongMap deleted;
+        LogSegmentReader reader;
+        fileLock.lockRead();
+        try {
+            deleted = tombstones.snapshot();
+            reader = LogSegmentReader.open(Paths.get(filePath));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Stream.empty();
+        } finally {
+            fileLock.unlockRead();
+        }
+        Spliterator<Log> records = new Spliterators.AbstractSpliterator<Log>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Log> action) {
+                try {
+                    while (reader.next()) {
+                        if (LogTombstones.isDeleted(deleted, reader.taskCode(), reader.ordinal())) {
+                            continue;
+                        }
+                        action.accept(reader.toLog());
+                        return true;
+                    }
+                    return false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(records, false).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * 指定したタスクコードのログを記録された順に取得します。
+     * 索引から該当する行の位置だけを読むため、ログ全体の件数にかかわらず該当件数に比例した時間で取得できます。
+     * {@link LogFormat#BINARY}の場合は索引を使わず、全てのレコードを走査して絞り込みます。
+     *
+     * @param taskCode 取得するログのタスクコード
+     * @return 該当するログのリスト
+     */
+    public List<Log> findByTaskCode(int taskCode) {
+        long start = FIND_BY_TASK_CODE.start();
+        try {
+            List<Log> logs = readByTaskCode(taskCode);
+            FIND_BY_TASK_CODE.addRowsScanned(logs.size());
+            return logs;
+        } finally {
+            FIND_BY_TASK_CODE.record(start);
+        }
+    }
 
-    // } catch (IOException e) {
-    // e.printStackTrace();
-    // }
-    // return null;
-    // }
+    private List<Log> readByTaskCode(int taskCode) {
+        if (format == LogFormat.BINARY) {
+            try (Stream<Log> logs = stream()) {
+                return logs.filter(log -> log.getTaskCode() == taskCode).collect(Collectors.toList());
+            }
+        }
+        flush();
+        fileLock.lockRead();
+        try {
+            return readAt(logIndex.offsetsOf(taskCode), taskCode);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            fileLock.unlockRead();
+        }
+    }
+
+    /**
+     * 変更日が指定した期間に含まれるログを記録された順に取得します。
+     *
+     * @param from 期間の開始日(この日を含む)
+     * @param to   期間の終了日(この日を含む)
+     * @return 該当するログのリスト
+     */
+    public List<Log> findByDateRange(LocalDate from, LocalDate to) {
+        if (format == LogFormat.BINARY) {
+            try (Stream<Log> logs = stream()) {
+                return logs.filter(log -> !log.getChangeDate().isBefore(from) && !log.getChangeDate().isAfter(to))
+                        .collect(Collectors.toList());
+            }
+        }
+        flush();
+        fileLock.lockRead();
+        try {
+            return readAt(logIndex.offsetsBetween(from.toEpochDay(), to.toEpochDay()), null);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        } finally {
+            fileLock.unlockRead();
+        }
+    }
+
+    /**
+     * 索引から得た位置の行を読み込みます。削除済みのログは含めません。
+     *
+     * @param offsets  昇順に並んだ行の位置
+     * @param taskCode 行のタスクコードを確かめる場合はそのコード、確かめない場合はnull
+     */
+    private List<Log> readAt(long[] offsets, Integer taskCode) throws IOException {
+        List<Log> logs = new ArrayList<>(offsets.length);
+        if (offsets.length == 0) {
+            return logs;
+        }
+        IntLongMap deleted = tombstones.snapshot();
+        try (CsvCursor cursor = CsvCursor.scanFrom(Paths.get(filePath), offsets[0])) {
+            for (long offset : offsets) {
+                cursor.seek(offset);
+                if (!cursor.nextRow()) {
+                    break;
+                }
+                int code = cursor.nextInt();
+                if ((taskCode != null && code != taskCode) || LogTombstones.isDeleted(deleted, code, offset)) {
+                    continue;
+                }
+                logs.add(new Log(code, cursor.nextInt(), cursor.nextInt(), cursor.nextDate()));
+            }
+        }
+        return logs;
+    }
 
     /**
      * 指定したタスクコードに該当するログを削除します。
+     * ファイルはその場では書き換えず、削除したことを墓標として記録して読み込み時に取り除きます。
+     * 行の物理的な削除は、少し待ってからバックグラウンドのコンパクションでまとめて行います。
      *
      * @see #findAll()
+     * @see #compact()
      * @param taskCode 削除するログのタスクコード
      */
-    // public void deleteByTaskCode(int taskCode) {
-    // try () {
+    public void deleteByTaskCode(int taskCode) {
+        flush();
+        fileLock.lockWrite();
+        fileLock.lockPublish();
+        try {
+            Path path = Paths.get(filePath);
+            if (format == LogFormat.BINARY) {
+                tombstones.add(taskCode, LogSegmentWriter.nextOrdinal(path));
+            } else {
+                tombstones.add(taskCode, Files.exists(path) ? Files.size(path) : 0);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        } finally {
+            fileLock.unlockPublish();
+            fileLock.unlockWrite();
+        }
+        if (tombstones.tryScheduleCompaction()) {
+            COMPACTOR.schedule(() -> {
+                tombstones.compactionStarted();
+                compact();
+            }, COMPACTION_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 削除済みのタスクのログをファイルから物理的に取り除きます。
+     * 一時ファイルに残す行だけを書き出してから置き換えるため、読み込み中の処理には影響しません。
+     * 書き出している間は同じファイルへの保存を待たせますが、読み込みは置き換える瞬間しか待たせません。
+     */
+    public void compact() {
+        flush();
+        fileLock.lockWrite();
+        try {
+            IntLongMap deleted = tombstones.snapshot();
+            if (deleted == null) {
+                return;
+            }
+            Path path = Paths.get(filePath);
+            if (format == LogFormat.BINARY) {
+                compactSegments(path, deleted);
+                return;
+            }
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (CsvCursor cursor = CsvCursor.open(path);
+                    OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                StringBuilder line = new StringBuilder(64);
+                line.append(HEADER).append('\n');
+                cursor.nextRow();
+                while (cursor.nextRow()) {
+                    long offset = cursor.rowOffset();
+                    int taskCode = cursor.nextInt();
+                    if (LogTombstones.isDeleted(deleted, taskCode, offset)) {
+                        continue;
+                    }
+                    Log log = new Log(taskCode, cursor.nextInt(), cursor.nextInt(), cursor.nextDate());
+                    appendLine(line, log).append('\n');
+                    if (line.length() >= 32 * 1024) {
+                        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+                        line.setLength(0);
+                    }
+                }
+                out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            fileLock.lockPublish();
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                fileLock.replaced();
+                tombstones.clear();
+            } finally {
+                fileLock.unlockPublish();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            fileLock.unlockWrite();
+        }
+    }
+
+    /**
+     * 各セグメントから削除済みのレコードを除いたファイルを書き出し、全て書き終えてから置き換えます。
+     * セグメント番号は変えないため、残したレコードの通し番号の順序は保たれます。
+     */
+    private void compactSegments(Path directory, IntLongMap deleted) throws IOException {
+        List<Path> segments = LogSegmentWriter.list(directory);
+        List<Path> replacements = new ArrayList<>(segments.size());
+        for (Path segment : segments) {
+            Path tmp = segment.resolveSibling(segment.getFileName() + ".tmp");
+            try (LogSegmentReader reader = LogSegmentReader.open(List.of(segment));
+                    LogSegmentWriter writer = LogSegmentWriter.createAt(tmp, LogSegmentWriter.segmentNumber(segment))) {
+                while (reader.next()) {
+                    if (!LogTombstones.isDeleted(deleted, reader.taskCode(), reader.ordinal())) {
+                        writer.append(reader.taskCode(), reader.changeUserCode(), reader.status(), reader.epochDay());
+                    }
+                }
+            }
+            replacements.add(tmp);
+        }
+        fileLock.lockPublish();
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                Files.move(replacements.get(i), segments.get(i), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            tombstones.clear();
+        } finally {
+            fileLock.unlockPublish();
+        }
+    }
 
-    // } catch (IOException e) {
-    // e.printStackTrace();
-    // }
-    // }
+    /**
+     * ログファイルのロックの取得を待った時間の集計を取得します。
+     *
+     * @return 待ち時間の集計
+     */
+    public LockWaitStats lockWaitStats() {
+        return fileLock.waitStats();
+    }
 
     /**
      * ログをCSVファイルに書き込むためのフォーマットを作成します。
@@ -75,7 +614,39 @@ public class LogDataAccess {
      * @param log フォーマットを作成するログ
      * @return CSVファイルに書き込むためのフォーマット
      */
-    // private String createLine(Log log) {
-    // }
+    private String createLine(Log log) {
+        return appendLine(new StringBuilder(32), log).toString();
+    }
+
+    static StringBuilder appendLine(StringBuilder line, Log log) {
+        return line.append(log.getTaskCode()).append(',')
+                .append(log.getChangeUserCode()).append(',')
+                .append(log.getStatus()).append(',')
+                .append(log.getChangeDate());
+    }
 
-}
\ No newline at end of file
+    /**
+     * バッファの内容をファイルの末尾に書き込みます。
+     * 末尾の改行を確認するために読み書き両用で開いたチャネルはAPPENDを指定できないため、位置を指定して書き込みます。
+     */
+    static void appendToEnd(FileChannel channel, ByteBuffer buffer) throws IOException {
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * ファイルが改行で終わっていないかを判定します。
+     * 手で編集したCSVの末尾に改行がないと、追記した行が最終行とつながってしまうため確認します。
+     */
+    static boolean endsWithoutNewline(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return false;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0) != '\n';
+    }
+}
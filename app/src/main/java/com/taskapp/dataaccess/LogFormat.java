@@ -0,0 +1,17 @@
+package com.taskapp.dataaccess;
+
+/**
+ * ログの保存形式です。
+ */
+public enum LogFormat {
+    /** 1件を1行のテキストとして保存するCSVファイルです */
+    CSV,
+    /**
+     * 1件を固定長13バイトのレコードとして保存するバイナリのセグメントファイルです。
+     * パスにはセグメントファイルを置くディレクトリを指定します。
+     * テキストの解析が不要なため、大量のログを走査する集計に向いています。
+     *
+     * @see com.taskapp.dataaccess.LogCsvConverter
+     */
+    BINARY
+}
@@ -0,0 +1,167 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.DateTimeException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ログCSVの行の位置(バイト単位)を、タスクコードごとと変更日ごとに引く索引です。
+ * 各キーには該当する行の位置をファイル上の順に並べたリスト(ポスティングリスト)を持ちます。
+ * ログCSVは追記されていくだけなので、伸びた分だけを走査して索引に加えます。
+ * コンパクションなどでファイルが置き換えられた場合は作り直します。
+ */
+final class LogIndex {
+    private static final Map<Path, LogIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path dataPath;
+
+    private Map<Integer, Postings> byTaskCode;
+    private NavigableMap<Long, Postings> byEpochDay;
+    private Object fileKey;
+    private long size;
+    private FileTime modified;
+
+    private LogIndex(Path dataPath) {
+        this.dataPath = dataPath;
+    }
+
+    /**
+     * 指定したログCSVに対応する索引を取得します。
+     *
+     * @param dataPath ログCSVのパス
+     * @return 共有された索引
+     */
+    static LogIndex of(Path dataPath) {
+        return INDEXES.computeIfAbsent(dataPath.toAbsolutePath().normalize(), LogIndex::new);
+    }
+
+    /**
+     * タスクコードに該当する行の位置を取得します。
+     * 呼び出し側で{@link CsvFileLock#lockRead()}を保持してください。
+     *
+     * @param taskCode タスクコード
+     * @return 昇順に並んだ行の位置
+     * @throws IOException ログCSVの読み込みに失敗した場合
+     */
+    synchronized long[] offsetsOf(int taskCode) throws IOException {
+        refresh();
+        Postings postings = byTaskCode.get(taskCode);
+        return postings == null ? new long[0] : postings.toArray();
+    }
+
+    /**
+     * 変更日が指定した範囲に含まれる行の位置を取得します。
+     * 呼び出し側で{@link CsvFileLock#lockRead()}を保持してください。
+     *
+     * @param fromEpochDay 範囲の開始日(この日を含む)
+     * @param toEpochDay   範囲の終了日(この日を含む)
+     * @return 昇順に並んだ行の位置
+     * @throws IOException ログCSVの読み込みに失敗した場合
+     */
+    synchronized long[] offsetsBetween(long fromEpochDay, long toEpochDay) throws IOException {
+        refresh();
+        if (fromEpochDay > toEpochDay) {
+            return new long[0];
+        }
+        Postings merged = new Postings();
+        for (Postings postings : byEpochDay.subMap(fromEpochDay, true, toEpochDay, true).values()) {
+            merged.addAll(postings);
+        }
+        long[] offsets = merged.toArray();
+        Arrays.sort(offsets);
+        return offsets;
+    }
+
+    /**
+     * ログCSVの現在の状態に索引を合わせます。
+     * 追記や置き換えの途中の行を読まないよう、呼び出し側で{@link CsvFileLock#lockRead()}以上のロックを保持してください。
+     * 公開領域の共有ロックで他のスレッドやプロセスの追記は止まり、同じ索引を使うスレッド同士は
+     * 呼び出し元のメソッドがsynchronizedであることで直列化されるため、書き込みロックは必要ありません。
+     */
+    private void refresh() throws IOException {
+        if (!Files.exists(dataPath)) {
+            byTaskCode = new HashMap<>();
+            byEpochDay = new TreeMap<>();
+            fileKey = null;
+            size = 0;
+            modified = null;
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        if (byTaskCode != null && Objects.equals(attrs.fileKey(), fileKey) && attrs.size() == size
+                && attrs.lastModifiedTime().equals(modified)) {
+            return;
+        }
+        if (byTaskCode != null && attrs.fileKey() != null && attrs.fileKey().equals(fileKey)
+                && attrs.size() > size) {
+            try (CsvCursor cursor = CsvCursor.scanFrom(dataPath, size)) {
+                scan(cursor);
+            }
+        } else {
+            byTaskCode = new HashMap<>();
+            byEpochDay = new TreeMap<>();
+            try (CsvCursor cursor = CsvCursor.open(dataPath)) {
+                cursor.nextRow();
+                scan(cursor);
+            }
+        }
+        fileKey = attrs.fileKey();
+        size = attrs.size();
+        modified = attrs.lastModifiedTime();
+    }
+
+    private void scan(CsvCursor cursor) throws IOException {
+        while (cursor.nextRow()) {
+            long offset = cursor.rowOffset();
+            int taskCode;
+            long epochDay;
+            try {
+                taskCode = cursor.nextInt();
+                cursor.skipField();
+                cursor.skipField();
+                epochDay = cursor.nextDate().toEpochDay();
+            } catch (NumberFormatException | DateTimeException | IllegalStateException e) {
+                continue;
+            }
+            byTaskCode.computeIfAbsent(taskCode, k -> new Postings()).add(offset);
+            byEpochDay.computeIfAbsent(epochDay, k -> new Postings()).add(offset);
+        }
+    }
+
+    /**
+     * 行の位置を追加順に保持する可変長のlong配列です。
+     */
+    private static final class Postings {
+        private long[] offsets = new long[4];
+        private int size;
+
+        void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        void addAll(Postings other) {
+            if (size + other.size > offsets.length) {
+                offsets = Arrays.copyOf(offsets, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.offsets, 0, offsets, size, other.size);
+            size += other.size;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(offsets, size);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.taskapp.dataaccess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.taskapp.model.Log;
+
+/**
+ * バイナリのセグメントファイルを先頭から1件ずつ読み進めるカーソルです。
+ * レコードは固定長のため、大きなバッファにまとめて読み込んでから位置を計算して取り出すだけで済み、
+ * 列の値を参照するだけの走査ではレコードごとのオブジェクト生成がありません。
+ * 各セグメントは読み始めた時点のサイズまでを読み、書き込み途中の末尾のレコードは読み飛ばします。
+ *
+ * @see com.taskapp.dataaccess.LogSegmentWriter
+ */
+final class LogSegmentReader implements Closeable {
+    private static final int BUFFER_RECORDS = 64 * 1024;
+
+    private final List<Path> segments;
+    private final List<FileChannel> channels;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * LogSegmentWriter.RECORD_SIZE);
+
+    private int segmentIndex = -1;
+    private FileChannel channel;
+    private int segmentNumber;
+    private long recordsInSegment;
+    private long recordIndex;
+    private long readPosition;
+
+    private int taskCode;
+    private int changeUserCode;
+    private int status;
+    private int epochDay;
+
+    private LogSegmentReader(List<Path> segments, List<FileChannel> channels) {
+        this.segments = segments;
+        this.channels = channels;
+        this.buffer.limit(0);
+    }
+
+    /**
+     * ディレクトリ内のセグメントを番号の順に読むカーソルを作成します。
+     * 全てのセグメントをこの時点で開くため、読んでいる途中にコンパクションでファイルが置き換えられても、
+     * 開いた時点の内容を読み続けます。
+     *
+     * @param directory セグメントファイルを置くディレクトリ
+     * @return 先頭のレコードの手前に位置するカーソル
+     * @throws IOException ディレクトリの読み込みに失敗した場合
+     */
+    static LogSegmentReader open(Path directory) throws IOException {
+        return open(LogSegmentWriter.list(directory));
+    }
+
+    /**
+     * 指定したセグメントを順に読むカーソルを作成します。
+     *
+     * @param segments セグメント番号の順に並んだセグメントファイル
+     * @return 先頭のレコードの手前に位置するカーソル
+     * @throws IOException ファイルを開けなかった場合
+     */
+    static LogSegmentReader open(List<Path> segments) throws IOException {
+        List<FileChannel> channels = new ArrayList<>(segments.size());
+        try {
+            for (Path segment : segments) {
+                channels.add(FileChannel.open(segment, StandardOpenOption.READ));
+            }
+        } catch (IOException e) {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+            throw e;
+        }
+        return new LogSegmentReader(segments, channels);
+    }
+
+    /**
+     * 次のレコードへ進みます。
+     *
+     * @return 次のレコードがあればtrue
+     * @throws IOException 読み込みに失敗した場合、またはセグメントの形式が正しくない場合
+     */
+    boolean next() throws IOException {
+        while (channel == null || recordIndex + 1 >= recordsInSegment) {
+            if (!nextSegment()) {
+                return false;
+            }
+        }
+        recordIndex++;
+        if (!buffer.hasRemaining()) {
+            fill();
+        }
+        taskCode = buffer.getInt();
+        changeUserCode = buffer.getInt();
+        status = buffer.get();
+        epochDay = buffer.getInt();
+        return true;
+    }
+
+    int taskCode() {
+        return taskCode;
+    }
+
+    int changeUserCode() {
+        return changeUserCode;
+    }
+
+    int status() {
+        return status;
+    }
+
+    long epochDay() {
+        return epochDay;
+    }
+
+    /**
+     * 現在のレコードの通し番号を取得します。
+     *
+     * @see LogSegmentWriter#nextOrdinal(Path)
+     * @return 通し番号
+     */
+    long ordinal() {
+        return (long) segmentNumber * LogSegmentWriter.RECORDS_PER_SEGMENT + recordIndex;
+    }
+
+    /**
+     * 現在のレコードをログに変換します。
+     *
+     * @return ログ
+     */
+    Log toLog() {
+        return new Log(taskCode, changeUserCode, status, LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * 現在読んでいるセグメントの番号を取得します。
+     *
+     * @return セグメント番号
+     */
+    int segmentNumber() {
+        return segmentNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel opened : channels) {
+            try {
+                opened.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        channel = null;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private boolean nextSegment() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        if (segmentIndex + 1 >= segments.size()) {
+            return false;
+        }
+        segmentIndex++;
+        Path path = segments.get(segmentIndex);
+        channel = channels.get(segmentIndex);
+        segmentNumber = LogSegmentWriter.readHeader(channel, path);
+        recordsInSegment = LogSegmentWriter.recordCount(channel.size());
+        recordIndex = -1;
+        readPosition = LogSegmentWriter.HEADER_SIZE;
+        buffer.limit(0);
+        return true;
+    }
+
+    /**
+     * 残りのレコードをバッファの大きさまでまとめて読み込みます。
+     */
+    private void fill() throws IOException {
+        long end = LogSegmentWriter.HEADER_SIZE + recordsInSegment * LogSegmentWriter.RECORD_SIZE;
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - readPosition));
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, readPosition);
+            if (read < 0) {
+                throw new IOException("セグメントが途中で終わっています: " + segments.get(segmentIndex));
+            }
+            readPosition += read;
+        }
+        buffer.flip();
+    }
+}
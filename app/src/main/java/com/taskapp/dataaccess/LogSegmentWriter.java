@@ -0,0 +1,240 @@
+package com.taskapp.dataaccess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.taskapp.model.Log;
+
+/**
+ * ログをバイナリのセグメントファイルに追記するライターです。
+ * セグメントファイルは16バイトのヘッダー(マジックナンバー、バージョン、レコード長、セグメント番号)の後に、
+ * タスクコード(int)・変更者のコード(int)・ステータス(byte)・変更日のエポック日(int)を並べた
+ * 13バイトのレコードが続きます。1ファイルのレコード数が{@link #RECORDS_PER_SEGMENT}に達すると次のファイルへ移ります。
+ * ファイル名は「8桁のセグメント番号.seg」です。
+ */
+final class LogSegmentWriter implements Closeable {
+    static final int MAGIC = 0x544C4F47; // "TLOG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 13;
+    /** 1セグメントに格納するレコード数 */
+    static final int RECORDS_PER_SEGMENT = 1 << 22;
+
+    private static final String SUFFIX = ".seg";
+    private static final int BUFFER_RECORDS = 8 * 1024;
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+
+    private FileChannel channel;
+    private int segmentNumber;
+    private long recordsInSegment;
+
+    private LogSegmentWriter(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * ディレクトリの最後のセグメントに追記するライターを作成します。
+     * ディレクトリやセグメントがなければ作成します。
+     * 最後のセグメントが書き込み途中のレコードで終わっている場合は、そのレコードを切り捨てます。
+     *
+     * @param directory セグメントファイルを置くディレクトリ
+     * @return ライター
+     * @throws IOException ファイルを開けなかった場合、またはセグメントの形式が正しくない場合
+     */
+    static LogSegmentWriter open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        LogSegmentWriter writer = new LogSegmentWriter(directory);
+        List<Path> segments = list(directory);
+        if (segments.isEmpty()) {
+            writer.create(segmentPath(directory, 0), 0);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            writer.channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writer.segmentNumber = readHeader(writer.channel, last);
+            writer.recordsInSegment = recordCount(writer.channel.size());
+            long end = HEADER_SIZE + writer.recordsInSegment * RECORD_SIZE;
+            if (writer.channel.size() > end) {
+                writer.channel.truncate(end);
+            }
+            writer.channel.position(end);
+        }
+        return writer;
+    }
+
+    /**
+     * 指定したパスに新しいセグメントを1つだけ作成するライターを作成します。
+     * コンパクションで既存のセグメントを置き換えるファイルを書き出すために使い、次のセグメントへは移りません。
+     *
+     * @param path   作成するファイル
+     * @param number 置き換えるセグメントの番号
+     * @return ライター
+     * @throws IOException ファイルを作成できなかった場合
+     */
+    static LogSegmentWriter createAt(Path path, int number) throws IOException {
+        LogSegmentWriter writer = new LogSegmentWriter(null);
+        Files.deleteIfExists(path);
+        writer.create(path, number);
+        return writer;
+    }
+
+    /**
+     * ログを1件追記します。書き込みはバッファに溜め、{@link #flush()}か{@link #close()}でファイルに書き出します。
+     *
+     * @param log 追記するログ
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void append(Log log) throws IOException {
+        append(log.getTaskCode(), log.getChangeUserCode(), log.getStatus(), log.getChangeDate().toEpochDay());
+    }
+
+    /**
+     * 列の値を指定してログを1件追記します。
+     *
+     * @param taskCode       タスクコード
+     * @param changeUserCode 変更者のコード
+     * @param status         ステータス
+     * @param epochDay       変更日のエポック日
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void append(int taskCode, int changeUserCode, int status, long epochDay) throws IOException {
+        if (status < Byte.MIN_VALUE || status > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("ステータスが1バイトに収まりません: " + status);
+        }
+        if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("変更日が保存できる範囲を超えています: " + epochDay);
+        }
+        if (recordsInSegment == RECORDS_PER_SEGMENT) {
+            if (directory == null) {
+                throw new IllegalStateException("置き換え用のセグメントには" + RECORDS_PER_SEGMENT + "件までしか書き込めません");
+            }
+            flush();
+            channel.close();
+            create(segmentPath(directory, segmentNumber + 1), segmentNumber + 1);
+        }
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.putInt(taskCode).putInt(changeUserCode).put((byte) status).putInt((int) epochDay);
+        recordsInSegment++;
+    }
+
+    /**
+     * バッファに溜まっているレコードをファイルに書き出します。
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * 次に追記されるレコードの通し番号を取得します。
+     * 通し番号は「セグメント番号 × {@link #RECORDS_PER_SEGMENT} + セグメント内の位置」で、追記順に増えていきます。
+     *
+     * @param directory セグメントファイルを置くディレクトリ
+     * @return 通し番号
+     * @throws IOException セグメントの読み込みに失敗した場合
+     */
+    static long nextOrdinal(Path directory) throws IOException {
+        List<Path> segments = list(directory);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        Path last = segments.get(segments.size() - 1);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.READ)) {
+            return (long) readHeader(channel, last) * RECORDS_PER_SEGMENT + recordCount(channel.size());
+        }
+    }
+
+    /**
+     * ディレクトリ内のセグメントファイルをセグメント番号の順に取得します。
+     *
+     * @param directory セグメントファイルを置くディレクトリ
+     * @return セグメントファイルのリスト。ディレクトリがない場合は空
+     * @throws IOException ディレクトリの読み込みに失敗した場合
+     */
+    static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        }
+    }
+
+    /**
+     * セグメントのヘッダーを確認し、セグメント番号を取得します。
+     *
+     * @throws IOException ヘッダーが正しくない場合
+     */
+    static int readHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("セグメントのヘッダーが途中で終わっています: " + path);
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_SIZE) {
+            throw new IOException("ログのセグメントファイルではありません: " + path);
+        }
+        return header.getInt();
+    }
+
+    /**
+     * セグメントのヘッダーからセグメント番号を取得します。
+     *
+     * @param segment セグメントファイル
+     * @return セグメント番号
+     * @throws IOException ヘッダーが正しくない場合
+     */
+    static int segmentNumber(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return readHeader(channel, segment);
+        }
+    }
+
+    static long recordCount(long fileSize) {
+        return Math.max(0, fileSize - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    private static Path segmentPath(Path directory, int number) {
+        return directory.resolve(String.format("%08d%s", number, SUFFIX));
+    }
+
+    private void create(Path path, int number) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(number).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        segmentNumber = number;
+        recordsInSegment = 0;
+    }
+}
@@ -0,0 +1,153 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 削除済みのタスクコードを記録する墓標(tombstone)の集合です。
+ * タスクコードごとに削除した時点のログCSVのサイズを記録し、それより前にある行だけを削除済みとして扱います。
+ * そのため、削除後に同じタスクコードで記録されたログは削除されません。
+ * 墓標は「ログCSVのパス + .tomb」のファイルに1行ずつ追記して保存し、コンパクションで行を物理的に消した後に空にします。
+ */
+final class LogTombstones {
+    private static final Map<Path, LogTombstones> TOMBSTONES = new ConcurrentHashMap<>();
+
+    private final Path tombPath;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    private IntLongMap watermarks;
+    private long loadedSize = -1;
+    private FileTime loadedModified;
+
+    private LogTombstones(Path logPath) {
+        this.tombPath = logPath.resolveSibling(logPath.getFileName() + ".tomb");
+    }
+
+    /**
+     * 指定したログCSVに対応する墓標を取得します。
+     *
+     * @param logPath ログCSVのパス
+     * @return 共有された墓標
+     */
+    static LogTombstones of(Path logPath) {
+        return TOMBSTONES.computeIfAbsent(logPath.toAbsolutePath().normalize(), LogTombstones::new);
+    }
+
+    /**
+     * タスクコードを削除済みにします。
+     *
+     * @param taskCode  削除するタスクコード
+     * @param watermark 削除した時点のログCSVのサイズ。これより前にある行が削除済みになります
+     * @throws IOException 墓標ファイルへの書き込みに失敗した場合
+     */
+    synchronized void add(int taskCode, long watermark) throws IOException {
+        Files.writeString(tombPath, taskCode + "," + watermark + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        load();
+    }
+
+    /**
+     * 読み込み時の絞り込みに使う、現時点の墓標の複製を取得します。
+     *
+     * @return 墓標の複製、墓標がない場合はnull
+     */
+    synchronized IntLongMap snapshot() {
+        load();
+        if (watermarks.size() == 0) {
+            return null;
+        }
+        IntLongMap copy = new IntLongMap(watermarks.size());
+        for (int slot = 0; slot < watermarks.slots(); slot++) {
+            if (watermarks.occupied(slot)) {
+                copy.put(watermarks.keyAt(slot), watermarks.valueAt(slot));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * コンパクションで削除済みの行を物理的に消した後、墓標を空にします。
+     *
+     * @throws IOException 墓標ファイルの削除に失敗した場合
+     */
+    synchronized void clear() throws IOException {
+        Files.deleteIfExists(tombPath);
+        load();
+    }
+
+    /**
+     * 行がある位置より前で削除されているかを判定します。
+     *
+     * @param deleted  {@link #snapshot()}で取得した墓標
+     * @param taskCode 行のタスクコード
+     * @param offset   行の位置
+     * @return 削除済みであればtrue
+     */
+    static boolean isDeleted(IntLongMap deleted, int taskCode, long offset) {
+        return deleted != null && deleted.get(taskCode, -1) > offset;
+    }
+
+    /**
+     * コンパクションの予約を試みます。既に予約されている場合はfalseを返します。
+     *
+     * @return 予約できた場合はtrue
+     */
+    boolean tryScheduleCompaction() {
+        return compactionScheduled.compareAndSet(false, true);
+    }
+
+    void compactionStarted() {
+        compactionScheduled.set(false);
+    }
+
+    /**
+     * 墓標ファイルを読み込みます。他のプロセスが墓標を追加・消去した場合にも追従できるよう、
+     * ファイルのサイズか更新日時が前回読み込んだときと変わっていれば読み直します。
+     */
+    private void load() {
+        long size = -1;
+        FileTime modified = null;
+        try {
+            if (Files.exists(tombPath)) {
+                BasicFileAttributes attrs = Files.readAttributes(tombPath, BasicFileAttributes.class);
+                size = attrs.size();
+                modified = attrs.lastModifiedTime();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (watermarks != null && size == loadedSize && Objects.equals(modified, loadedModified)) {
+            return;
+        }
+        watermarks = new IntLongMap();
+        loadedSize = size;
+        loadedModified = modified;
+        if (size < 0) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(tombPath, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] parts = line.split(",", -1);
+                if (parts.length < 2) {
+                    continue;
+                }
+                int taskCode = Integer.parseInt(parts[0].trim());
+                long watermark = Long.parseLong(parts[1].trim());
+                watermarks.put(taskCode, Math.max(watermark, watermarks.get(taskCode, -1)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+        }
+    }
+}
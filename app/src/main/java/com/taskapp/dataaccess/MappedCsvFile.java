@@ -0,0 +1,124 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CSVファイルをメモリマップしたセグメントの集まりとして保持します。
+ * ファイルは{@link #SEGMENT_SIZE}ごとのセグメントに分けてマップし、各セグメントは
+ * {@link #MAX_ROW_LENGTH}だけ次のセグメントと重ねてマップするため、セグメント内で始まる行は必ず同じセグメント内で終わります。
+ * 追記によってファイルが伸びただけの場合は、末尾のセグメントだけをマップし直します。
+ */
+final class MappedCsvFile {
+    /** 1セグメントが担当するバイト数 */
+    static final long SEGMENT_SIZE = 1L << 30;
+    /** マップ読み込みで扱える1行の最大バイト数 */
+    static final int MAX_ROW_LENGTH = 1 << 20;
+
+    private static final Map<Path, MappedCsvFile> FILES = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    private Object fileKey;
+    private long size;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    private MappedCsvFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 指定したファイルに対応するマップを取得します。
+     *
+     * @param path CSVファイルのパス
+     * @return 共有されたマップ
+     */
+    static MappedCsvFile of(Path path) {
+        return FILES.computeIfAbsent(path.toAbsolutePath().normalize(), MappedCsvFile::new);
+    }
+
+    /**
+     * 現在のファイル内容に対応するセグメントを取得します。
+     * ファイルが置き換えられたか縮んだ場合は全てをマップし直し、伸びた場合は末尾のセグメントだけをマップし直します。
+     *
+     * @return マップ済みのセグメント
+     * @throws IOException マップに失敗した場合
+     */
+    synchronized Segments map() throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        Object key = attrs.fileKey();
+        long newSize = attrs.size();
+        if (key == null || !key.equals(fileKey) || newSize < size) {
+            segments = new MappedByteBuffer[0];
+            size = 0;
+        }
+        if (newSize != size || segments.length == 0) {
+            remap(newSize);
+            fileKey = key;
+            size = newSize;
+        }
+        return new Segments(segments, size);
+    }
+
+    private void remap(long newSize) throws IOException {
+        int count = (int) ((newSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        MappedByteBuffer[] remapped = Arrays.copyOf(segments, count);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < count; i++) {
+                long start = i * SEGMENT_SIZE;
+                long length = Math.min(newSize - start, SEGMENT_SIZE + MAX_ROW_LENGTH);
+                if (remapped[i] == null || remapped[i].capacity() != length) {
+                    remapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                }
+            }
+        }
+        segments = remapped;
+    }
+
+    /**
+     * ある時点のファイル全体に対応するセグメントの組です。
+     */
+    static final class Segments {
+        private final MappedByteBuffer[] segments;
+        private final long size;
+
+        private Segments(MappedByteBuffer[] segments, long size) {
+            this.segments = segments;
+            this.size = size;
+        }
+
+        int count() {
+            return segments.length;
+        }
+
+        /**
+         * セグメントを取得します。カーソルごとに独立した位置を持つよう複製して返します。
+         *
+         * @param index セグメント番号
+         * @return セグメントのバッファ
+         */
+        ByteBuffer segment(int index) {
+            return Objects.requireNonNull(segments[index]).duplicate();
+        }
+
+        /**
+         * セグメントがファイルの末尾まで含んでいるかを判定します。
+         *
+         * @param index セグメント番号
+         * @return 末尾を含んでいればtrue
+         */
+        boolean reachesEnd(int index) {
+            return index * SEGMENT_SIZE + segments[index].capacity() >= size;
+        }
+    }
+}
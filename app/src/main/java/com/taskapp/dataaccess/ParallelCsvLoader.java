@@ -0,0 +1,266 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * CSVファイルをバイト範囲ごとのチャンクに分け、ForkJoinPoolで並列に解析して全ての行を読み込みます。
+ * チャンクの境界は改行の直後に揃えるため、1つの行が2つのチャンクにまたがることはありません。
+ * 各チャンクは同じチャネルを位置指定で読むため、開いた時点のファイルの内容を全てのチャンクで揃えて読めます。
+ * 結果はファイル上の順序で連結するため、1スレッドで先頭から読んだ場合と同じ並びになります。
+ * 小さなファイルは分割せず、呼び出したスレッドでそのまま読み込みます。
+ */
+final class ParallelCsvLoader {
+    /** 1チャンクの最小バイト数。これより小さく分けても並列化の効果より手間の方が大きくなります */
+    static final long MIN_CHUNK_SIZE = 1L << 20;
+    /** スレッドごとのチャンク数。行の長さの偏りで一部のスレッドだけが遅れないよう、少し細かく分けます */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int ALIGN_BUFFER_SIZE = 4 * 1024;
+
+    private ParallelCsvLoader() {
+    }
+
+    /**
+     * 1行を解析して値に変換する処理です。複数のスレッドから同時に呼び出されます。
+     *
+     * @param <T> 変換後の値の型
+     */
+    @FunctionalInterface
+    interface RowReader<T> {
+        /**
+         * カーソルが指している行を変換します。
+         *
+         * @param cursor 行の先頭の列を指しているカーソル
+         * @return 変換した値。読み飛ばす行の場合はnull
+         */
+        T read(CsvCursor cursor);
+    }
+
+    /**
+     * 1つのチャンクの全ての行を読み込み、チャンク単位の結果にまとめる処理です。
+     * 行ごとにオブジェクトを作らずに、列ごとの配列などへ直接読み込む場合に使います。
+     * 異なるチャンクに対して複数のスレッドから同時に呼び出されます。
+     *
+     * @param <R> チャンク単位の結果の型
+     */
+    @FunctionalInterface
+    interface ChunkReader<R> {
+        /**
+         * チャンクの全ての行を読み込みます。
+         *
+         * @param cursor チャンクの範囲だけを読むカーソル
+         * @return チャンク単位の結果
+         * @throws IOException 読み込みに失敗した場合
+         */
+        R read(CsvCursor cursor) throws IOException;
+    }
+
+    /**
+     * 先頭のヘッダー行を除いた全ての行を、共通のForkJoinPoolで並列に読み込みます。
+     *
+     * @param <T>     変換後の値の型
+     * @param channel 読み込むチャネル。読み込みが終わるまで開いたままにしてください
+     * @param reader  1行を変換する処理
+     * @return ファイル上の順序で並んだ値のリスト
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static <T> List<T> load(FileChannel channel, RowReader<T> reader) throws IOException {
+        return load(channel, reader, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 先頭のヘッダー行を除いた全ての行を、指定したForkJoinPoolで並列に読み込みます。
+     *
+     * @param <T>     変換後の値の型
+     * @param channel 読み込むチャネル。読み込みが終わるまで開いたままにしてください
+     * @param reader  1行を変換する処理
+     * @param pool    解析に使うプール
+     * @return ファイル上の順序で並んだ値のリスト
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static <T> List<T> load(FileChannel channel, RowReader<T> reader, ForkJoinPool pool) throws IOException {
+        List<List<T>> chunks = loadChunks(channel, cursor -> readRows(cursor, reader), pool);
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+        int total = 0;
+        for (List<T> chunk : chunks) {
+            total += chunk.size();
+        }
+        List<T> rows = new ArrayList<>(total);
+        for (List<T> chunk : chunks) {
+            rows.addAll(chunk);
+        }
+        return rows;
+    }
+
+    /**
+     * 先頭のヘッダー行を除いた全ての行をチャンクに分け、チャンクごとの結果を共通のForkJoinPoolで並列に読み込みます。
+     *
+     * @param <R>     チャンク単位の結果の型
+     * @param channel 読み込むチャネル。読み込みが終わるまで開いたままにしてください
+     * @param reader  1つのチャンクを読み込む処理
+     * @return ファイル上の順序で並んだチャンクごとの結果。1件以上含みます
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static <R> List<R> loadChunks(FileChannel channel, ChunkReader<R> reader) throws IOException {
+        return loadChunks(channel, reader, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 先頭のヘッダー行を除いた全ての行をチャンクに分け、チャンクごとの結果を指定したForkJoinPoolで並列に読み込みます。
+     *
+     * @param <R>     チャンク単位の結果の型
+     * @param channel 読み込むチャネル。読み込みが終わるまで開いたままにしてください
+     * @param reader  1つのチャンクを読み込む処理
+     * @param pool    解析に使うプール
+     * @return ファイル上の順序で並んだチャンクごとの結果。1件以上含みます
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static <R> List<R> loadChunks(FileChannel channel, ChunkReader<R> reader, ForkJoinPool pool)
+            throws IOException {
+        long end = channel.size();
+        // ヘッダー行の直後から読む
+        long start = nextRowStart(channel, 1, end);
+        long[] bounds = split(channel, start, end, pool.getParallelism());
+        if (bounds.length == 2) {
+            return List.of(readChunk(channel, bounds[0], bounds[1], reader));
+        }
+
+        List<ChunkTask<R>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            tasks.add(new ChunkTask<>(channel, bounds[i], bounds[i + 1], reader));
+        }
+        try {
+            pool.invoke(new ChunksTask<>(tasks));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        List<R> results = new ArrayList<>(tasks.size());
+        for (ChunkTask<R> task : tasks) {
+            results.add(task.getRawResult());
+        }
+        return results;
+    }
+
+    /**
+     * 範囲をほぼ等しい大きさのチャンクに分け、各境界を次の行の先頭に揃えます。
+     *
+     * @return 先頭と末尾を含む、昇順に並んだ境界の位置
+     */
+    private static long[] split(FileChannel channel, long start, long end, int parallelism) throws IOException {
+        long length = end - start;
+        int chunks = (int) Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD, length / MIN_CHUNK_SIZE));
+        long[] bounds = new long[chunks + 1];
+        int count = 0;
+        bounds[count++] = start;
+        for (int i = 1; i < chunks; i++) {
+            long bound = nextRowStart(channel, start + length * i / chunks, end);
+            // 長い行が続くと前の境界を追い越さないことがあるため、空のチャンクは作らない
+            if (bound > bounds[count - 1] && bound < end) {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count++] = end;
+        return count == bounds.length ? bounds : Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * 指定した位置以降で最初に現れる改行の直後の位置を求めます。
+     * 直前の位置が改行であれば、指定した位置がそのまま行の先頭になります。
+     *
+     * @param position 1以上の位置
+     * @return 次の行の先頭の位置。改行がなければ範囲の終わり
+     */
+    private static long nextRowStart(FileChannel channel, long position, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ALIGN_BUFFER_SIZE);
+        long scan = position - 1;
+        while (scan < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - scan));
+            int read = channel.read(buffer, scan);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return scan + i + 1;
+                }
+            }
+            scan += read;
+        }
+        return end;
+    }
+
+    private static <R> R readChunk(FileChannel channel, long start, long end, ChunkReader<R> reader)
+            throws IOException {
+        try (CsvCursor cursor = CsvCursor.range(channel, start, end)) {
+            return reader.read(cursor);
+        }
+    }
+
+    private static <T> List<T> readRows(CsvCursor cursor, RowReader<T> reader) throws IOException {
+        List<T> rows = new ArrayList<>();
+        while (cursor.nextRow()) {
+            T row = reader.read(cursor);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 全てのチャンクをプールの中から並列に読み込みます。
+     * ForkJoinTaskはSerializableですが、このタスクは直列化しないため、フィールドはtransientにしています。
+     */
+    private static final class ChunksTask<R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<ChunkTask<R>> tasks;
+
+        ChunksTask(List<ChunkTask<R>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+
+    private static final class ChunkTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+        private final transient ChunkReader<R> reader;
+
+        ChunkTask(FileChannel channel, long start, long end, ChunkReader<R> reader) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.reader = reader;
+        }
+
+        @Override
+        protected R compute() {
+            try {
+                return readChunk(channel, start, end, reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
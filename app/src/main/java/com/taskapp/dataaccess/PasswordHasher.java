@@ -0,0 +1,140 @@
+package com.taskapp.dataaccess;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * ユーザーCSVに保存するパスワードのハッシュを作成・照合します。
+ * ハッシュは「pbkdf2-sha256$反復回数$ソルト$ハッシュ」の形式で、ソルトとハッシュはBase64で表します。
+ * 反復回数はハッシュごとに記録するため、{@code taskapp.password.iterations}で回数を変えても既存のハッシュは照合できます。
+ * この形式でない値は移行前の平文のパスワードとして扱います。平文の行は{@link UserDataAccess#migratePasswords()}でハッシュに置き換えてください。
+ */
+public final class PasswordHasher {
+    /** {@code taskapp.password.iterations}を指定しない場合の反復回数 */
+    public static final int DEFAULT_ITERATIONS = 100_000;
+
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_SIZE = 16;
+    private static final int HASH_BITS = 256;
+    private static final byte[] DUMMY_SALT = new byte[SALT_SIZE];
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * {@code taskapp.password.iterations}の反復回数でハッシュを作成するインスタンスを作成します。
+     */
+    public PasswordHasher() {
+        this(Integer.getInteger("taskapp.password.iterations", DEFAULT_ITERATIONS));
+    }
+
+    /**
+     * 反復回数を指定してインスタンスを作成します。
+     *
+     * @param iterations 新しく作成するハッシュの反復回数
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("反復回数は1以上を指定してください: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * パスワードのハッシュを作成します。
+     *
+     * @param password パスワード
+     * @return ユーザーCSVに保存する形式のハッシュ
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_SIZE];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, iterations));
+    }
+
+    /**
+     * パスワードが保存されている値と一致するかを照合します。
+     * 比較にかかる時間が一致した文字数に左右されないよう、最後まで比較します。
+     * 移行前の平文と比較する場合も{@link #verifyDummy(String)}と同じ計算を行い、
+     * 応答時間から平文のまま残っているユーザーかどうかを推測できないようにします。
+     *
+     * @param password 入力されたパスワード
+     * @param stored   ユーザーCSVに保存されている値(ハッシュまたは移行前の平文)
+     * @return 一致すればtrue
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            verifyDummy(password);
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            if (storedIterations < 1) {
+                return false;
+            }
+            return MessageDigest.isEqual(derive(password, salt, storedIterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 該当するユーザーがいない場合に、照合と同じだけの計算を行います。
+     * 応答時間から、メールアドレスが登録されているかどうかを推測できないようにするために使います。
+     *
+     * @param password 入力されたパスワード
+     * @return 常にfalse
+     */
+    public boolean verifyDummy(String password) {
+        derive(password == null ? "" : password, DUMMY_SALT, iterations);
+        return false;
+    }
+
+    /**
+     * 保存されている値がハッシュの形式かを判定します。
+     *
+     * @param stored ユーザーCSVに保存されている値
+     * @return ハッシュの形式であればtrue、移行前の平文であればfalse
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * 新しく作成するハッシュの反復回数を取得します。
+     *
+     * @return 反復回数
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + "を利用できません", e);
+        }
+    }
+}
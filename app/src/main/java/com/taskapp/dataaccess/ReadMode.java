@@ -0,0 +1,14 @@
+package com.taskapp.dataaccess;
+
+/**
+ * CSVファイルの読み込み方式です。
+ */
+public enum ReadMode {
+    /** FileChannelからヒープ上のバッファへ読み込みながら走査します */
+    BUFFERED,
+    /**
+     * ファイルをメモリマップし、マップしたバッファ上を直接走査します。
+     * マップはファイルごとに共有され、追記で伸びた分だけマップし直すため、大きな追記型のファイルに向いています。
+     */
+    MAPPED
+}
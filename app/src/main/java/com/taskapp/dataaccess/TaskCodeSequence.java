@@ -0,0 +1,172 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 新しいタスクのコードを採番するシーケンスです。
+ * 「タスクCSVのパス + .seq」のファイルに、まだ誰にも割り当てていない最小のコードを記録します。
+ * コードは1件ずつではなく{@link #DEFAULT_BLOCK_SIZE}件のブロック単位でファイルから予約し、
+ * 予約したブロックの中ではロックを取らずに順に払い出します。
+ * ファイルのロックを取るのはブロックを使い切ったときだけのため、
+ * 複数のスレッドやプロセスから同時に採番してもコードは重複せず、1件ごとに全体で待ち合わせることもありません。
+ * 予約したブロックの残りはプロセスの終了とともに捨てるため、コードに欠番が生じることがあります。
+ * シーケンスのファイルがない場合や壊れている場合は、CSVに存在する最大のコードの次から始めます。
+ */
+final class TaskCodeSequence {
+    /** 1回の予約で確保するコードの数 */
+    static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private static final int RECORD_SIZE = 16;
+
+    private static final Map<Path, TaskCodeSequence> SEQUENCES = new ConcurrentHashMap<>();
+
+    /** FileChannel.lockは同じプロセス内では重ねて取得できないため、同じファイルの予約はプロセス内でも直列化します */
+    private static final Map<Path, ReentrantLock> RESERVE_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path sequencePath;
+    private final TaskOffsetIndex offsetIndex;
+    private final CsvFileLock fileLock;
+    private final ReentrantLock reserveLock;
+    private final int blockSize;
+
+    private volatile Block block = new Block(0, 0);
+
+    /**
+     * シーケンスを作成します。
+     * 同じファイルのシーケンスは通常{@link #of(Path)}で共有してください。
+     *
+     * @param dataPath  タスクCSVのパス
+     * @param blockSize 1回の予約で確保するコードの数
+     */
+    TaskCodeSequence(Path dataPath, int blockSize) {
+        this.sequencePath = dataPath.resolveSibling(dataPath.getFileName() + ".seq");
+        this.offsetIndex = TaskOffsetIndex.of(dataPath);
+        this.fileLock = CsvFileLock.of(dataPath);
+        this.reserveLock = RESERVE_LOCKS.computeIfAbsent(sequencePath.toAbsolutePath().normalize(),
+                path -> new ReentrantLock());
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * 指定したタスクCSVに対応するシーケンスを取得します。
+     *
+     * @param dataPath タスクCSVのパス
+     * @return 共有されたシーケンス
+     */
+    static TaskCodeSequence of(Path dataPath) {
+        return SEQUENCES.computeIfAbsent(dataPath.toAbsolutePath().normalize(),
+                path -> new TaskCodeSequence(path, DEFAULT_BLOCK_SIZE));
+    }
+
+    /**
+     * 次のタスクコードを払い出します。
+     *
+     * @return まだ払い出していないタスクコード
+     * @throws IOException シーケンスのファイルの読み書きに失敗した場合
+     */
+    int next() throws IOException {
+        while (true) {
+            Block current = block;
+            long code = current.next.getAndIncrement();
+            if (code < current.end) {
+                return (int) code;
+            }
+            synchronized (this) {
+                if (block == current) {
+                    block = reserve();
+                }
+            }
+        }
+    }
+
+    /**
+     * シーケンスのファイルをロックして次のブロックを予約します。
+     * 記録を書き換えてディスクに反映してから払い出すため、途中で異常終了しても同じコードを二度払い出すことはありません。
+     */
+    private Block reserve() throws IOException {
+        reserveLock.lock();
+        try (FileChannel channel = FileChannel.open(sequencePath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                long start = readRecord(channel);
+                if (start < 0) {
+                    start = Math.max(1L, (long) maxCode() + 1);
+                }
+                long end = Math.min(start + blockSize, (long) Integer.MAX_VALUE + 1);
+                if (start >= end) {
+                    throw new IOException("採番できるタスクコードが残っていません");
+                }
+
+                ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).putLong(end).putLong(~end);
+                record.flip();
+                while (record.hasRemaining()) {
+                    channel.write(record, record.position());
+                }
+                channel.force(false);
+                return new Block(start, end);
+            } finally {
+                lock.release();
+            }
+        } finally {
+            reserveLock.unlock();
+        }
+    }
+
+    private int maxCode() throws IOException {
+        fileLock.lockRead();
+        try {
+            return offsetIndex.maxCode();
+        } catch (NoSuchFileException e) {
+            return 0;
+        } finally {
+            fileLock.unlockRead();
+        }
+    }
+
+    /**
+     * 記録されている次のコードを読み込みます。
+     *
+     * @return 次のコード、記録がないか壊れている場合は-1
+     */
+    private static long readRecord(FileChannel channel) throws IOException {
+        if (channel.size() < RECORD_SIZE) {
+            return -1;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        while (record.hasRemaining()) {
+            if (channel.read(record, record.position()) < 0) {
+                return -1;
+            }
+        }
+        record.flip();
+        long next = record.getLong();
+        if (record.getLong() != ~next || next < 0) {
+            return -1;
+        }
+        return next;
+    }
+
+    /**
+     * 予約済みのコードの範囲です。
+     */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.taskapp.dataaccess;
+
+import java.util.Arrays;
+
+/**
+ * タスクコードの集合です。
+ * 0以上{@link #DENSE_LIMIT}未満のコードは1コード1ビットのビットマップで保持し、
+ * 連番で採番されるコードであれば100万件でも約125KBに収まります。
+ * 範囲外のコードはハッシュ表で保持します。
+ * 追加は呼び出し側で直列化する必要があります。
+ * ビットマップは拡張のたびに新しい配列を公開するため、{@link #definitelyContains(int)}は同期せずに呼び出せます。
+ */
+final class TaskCodeSet {
+    /** ビットマップで保持するコードの上限。これ以上のコードはハッシュ表で保持します */
+    static final int DENSE_LIMIT = 1 << 26;
+
+    private volatile long[] dense = new long[0];
+    private final IntLongMap sparse = new IntLongMap();
+    private int size;
+    private int max = Integer.MIN_VALUE;
+
+    /**
+     * 索引の全てのコードを持つ集合を作成します。
+     *
+     * @param offsets タスクコードの索引
+     * @return 集合
+     */
+    static TaskCodeSet of(IntLongMap offsets) {
+        TaskCodeSet codes = new TaskCodeSet();
+        codes.addAll(offsets);
+        return codes;
+    }
+
+    /**
+     * コードを追加します。
+     *
+     * @param code タスクコード
+     * @return 追加前に含まれていなければtrue
+     */
+    boolean add(int code) {
+        if (code > max) {
+            max = code;
+        }
+        if (code < 0 || code >= DENSE_LIMIT) {
+            if (sparse.putIfAbsent(code, 0)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+        int word = code >>> 6;
+        long bit = 1L << code;
+        long[] words = dense;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        if ((words[word] & bit) != 0) {
+            return false;
+        }
+        words[word] |= bit;
+        dense = words;
+        size++;
+        return true;
+    }
+
+    /**
+     * 索引の全てのコードを追加します。
+     *
+     * @param offsets タスクコードの索引
+     */
+    void addAll(IntLongMap offsets) {
+        for (int slot = 0; slot < offsets.slots(); slot++) {
+            if (offsets.occupied(slot)) {
+                add(offsets.keyAt(slot));
+            }
+        }
+    }
+
+    /**
+     * コードが含まれているかを判定します。追加と同じく呼び出し側で直列化してください。
+     *
+     * @param code タスクコード
+     * @return 含まれていればtrue
+     */
+    boolean contains(int code) {
+        if (code < 0 || code >= DENSE_LIMIT) {
+            return sparse.containsKey(code);
+        }
+        return definitelyContains(code);
+    }
+
+    /**
+     * 同期せずに、コードが確実に含まれているかを判定します。
+     * 追加と同時に呼び出した場合や範囲外のコードの場合は、含まれていてもfalseを返すことがあります。
+     * falseの場合は{@link #contains(int)}で確認し直してください。
+     *
+     * @param code タスクコード
+     * @return 含まれていることが確実であればtrue
+     */
+    boolean definitelyContains(int code) {
+        if (code < 0 || code >= DENSE_LIMIT) {
+            return false;
+        }
+        long[] words = dense;
+        int word = code >>> 6;
+        return word < words.length && (words[word] & (1L << code)) != 0;
+    }
+
+    /**
+     * 含まれている最大のコードを取得します。
+     *
+     * @return 最大のコード、空の場合はInteger.MIN_VALUE
+     */
+    int max() {
+        return max;
+    }
+
+    /**
+     * 含まれているコードの数を取得します。
+     *
+     * @return コードの数
+     */
+    int size() {
+        return size;
+    }
+}
@@ -1,27 +1,70 @@
 package com.taskapp.dataaccess;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.taskapp.exception.AppException;
+import com.taskapp.metrics.Metrics;
+import com.taskapp.metrics.OperationMetrics;
 import com.taskapp.model.Task;
+import com.taskapp.model.TaskPage;
 import com.taskapp.model.User;
 
 public class TaskDataAccess {
 
+    private static final String HEADER = "Code,Name,Status,Rep_User_Code";
+
+    private static final User UNKNOWN_USER = new User(-1, "不明", "", "");
+
+    private static final OperationMetrics FIND_ALL = Metrics.operation("TaskDataAccess.findAll");
+    private static final OperationMetrics FIND_TABLE = Metrics.operation("TaskDataAccess.findTable");
+    private static final OperationMetrics FIND_PAGE = Metrics.operation("TaskDataAccess.findPage");
+    private static final OperationMetrics FIND_BY_CODE = Metrics.operation("TaskDataAccess.findByCode");
+    private static final OperationMetrics FIND_BY_REP_USER_CODE = Metrics.operation("TaskDataAccess.findByRepUserCode");
+    private static final OperationMetrics SAVE = Metrics.operation("TaskDataAccess.save");
+    private static final OperationMetrics SAVE_ALL = Metrics.operation("TaskDataAccess.saveAll");
+    private static final OperationMetrics UPDATE = Metrics.operation("TaskDataAccess.update");
+    private static final OperationMetrics COMPARE_AND_SET_STATUS = Metrics.operation("TaskDataAccess.compareAndSetStatus");
+
     private final String filePath;
-    private final String userPath = "app/src/main/resources/users.csv";
 
     private final UserDataAccess userDataAccess;
 
+    private final ReadMode readMode;
+
+    private final TaskOffsetIndex offsetIndex;
+
+    private final TaskRepUserIndex repUserIndex;
+
+    private final CsvFileLock fileLock;
+
+    private final TaskCodeSequence codeSequence;
+
     public TaskDataAccess() {
-        filePath = "app/src/main/resources/tasks.csv";
-        userDataAccess = new UserDataAccess();
+        this("app/src/main/resources/tasks.csv", new UserDataAccess(), ReadMode.BUFFERED);
     }
 
     /**
@@ -31,94 +74,491 @@ public class TaskDataAccess {
      * @param userDataAccess
      */
     public TaskDataAccess(String filePath, UserDataAccess userDataAccess) {
+        this(filePath, userDataAccess, ReadMode.BUFFERED);
+    }
+
+    /**
+     * 読み込み方式を指定してインスタンスを作成します。
+     *
+     * @param filePath       タスクCSVのパス
+     * @param userDataAccess 担当者の解決に利用するユーザーデータアクセス
+     * @param readMode       findAll・findByCodeで利用する読み込み方式
+     */
+    public TaskDataAccess(String filePath, UserDataAccess userDataAccess, ReadMode readMode) {
         this.filePath = filePath;
         this.userDataAccess = userDataAccess;
+        this.readMode = readMode;
+        this.offsetIndex = TaskOffsetIndex.of(Paths.get(filePath));
+        this.repUserIndex = TaskRepUserIndex.of(Paths.get(filePath));
+        this.fileLock = CsvFileLock.of(Paths.get(filePath));
+        this.codeSequence = TaskCodeSequence.of(Paths.get(filePath));
     }
 
     /**
      * CSVから全てのタスクデータを取得します。
+     * 担当者はユーザーインデックスから解決するため、ユーザーCSVは一覧取得ごとに高々1回しか読み込みません。
+     * {@link ReadMode#BUFFERED}の場合は、ファイルを改行で揃えたチャンクに分けて並列に解析します。
      *
-     * @see com.taskapp.dataaccess.UserDataAccess#findByCode(int)
+     * @see com.taskapp.dataaccess.UserDataAccess#usersByCode()
+     * @see com.taskapp.dataaccess.ParallelCsvLoader
      * @return タスクのリスト
      */
     public List<Task> findAll() {
-        List<Task> list = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",", -1);
-                int code = Integer.parseInt(parts[0].trim());
-                String name = parts[1].trim();
-                int status = Integer.parseInt(parts[2].trim());
-                int repUserCode = Integer.parseInt(parts[3].trim());
-                User repUser = findUserByCode(repUserCode);
-                list.add(new Task(code, name, status, repUser));
+        long start = FIND_ALL.start();
+        try {
+            Map<Integer, User> users = userDataAccess.usersByCode();
+            return findTable().asList(repUserCode -> users.getOrDefault(repUserCode, UNKNOWN_USER));
+        } finally {
+            FIND_ALL.record(start);
+        }
+    }
+
+    /**
+     * CSVから全てのタスクを読み込み、列ごとの配列で保持する表を作成します。
+     * 行ごとのTaskやタスク名の文字列は作らず、配列へ直接読み込みます。
+     * {@link ReadMode#BUFFERED}の場合は、チャンクごとに並列に読み込んでからファイル上の順序で連結します。
+     *
+     * @see com.taskapp.dataaccess.ParallelCsvLoader#loadChunks(FileChannel, ParallelCsvLoader.ChunkReader)
+     * @return タスクの表。読み込みに失敗した場合は空の表
+     */
+    public TaskTable findTable() {
+        long start = FIND_TABLE.start();
+        try {
+            TaskTable table = readTable();
+            FIND_TABLE.addRowsScanned(table.size());
+            return table;
+        } finally {
+            FIND_TABLE.record(start);
+        }
+    }
+
+    private TaskTable readTable() {
+        if (readMode == ReadMode.BUFFERED) {
+            try (FileChannel channel = openChannelForRead()) {
+                TaskTable table = TaskTable.of(ParallelCsvLoader.loadChunks(channel, TaskTable.Builder::read));
+                FIND_TABLE.addBytesRead(channel.size());
+                return table;
+            } catch (IOException e) {
+                e.printStackTrace();
+                FIND_TABLE.error();
+                return new TaskTable.Builder().build();
             }
+        }
+        try (CsvCursor cursor = openForRead()) {
+            cursor.nextRow();
+            TaskTable table = TaskTable.Builder.read(cursor).build();
+            FIND_TABLE.addBytesRead(cursor.position());
+            return table;
+        } catch (IOException e) {
+            e.printStackTrace();
+            FIND_TABLE.error();
+            return new TaskTable.Builder().build();
+        }
+    }
+
+    /**
+     * 全てのタスクを1行ずつ読み込むストリームを取得します。
+     * 行の解析と担当者の解決はストリームを消費した分だけ行うため、一覧の一部だけを使う場合に向いています。
+     * ファイルを開いたままにするため、try-with-resourcesで閉じてください。
+     *
+     * @return タスクのストリーム
+     */
+    public Stream<Task> stream() {
+        Map<Integer, User> users = userDataAccess.usersByCode();
+        CsvCursor cursor;
+        try {
+            cursor = openForRead();
+            cursor.nextRow();
         } catch (IOException e) {
             e.printStackTrace();
+            return Stream.empty();
         }
-        return list;
+        Spliterator<Task> rows = new Spliterators.AbstractSpliterator<Task>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Task> action) {
+                try {
+                    if (!cursor.nextRow()) {
+                        return false;
+                    }
+                    action.accept(readListedTask(cursor, users));
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
     }
 
-    private User findUserByCode(int code) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(userPath))) {
-            reader.readLine();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",", -1);
-                int userCode = Integer.parseInt(parts[0].trim());
-                if (userCode == code) {
-                    return new User(userCode, parts[1].trim(), parts[2].trim(), parts[3].trim());
+    /**
+     * 指定したページのタスクを取得します。
+     * ページより前の行は改行を探して読み飛ばすだけで、解析と担当者の解決はページ内の行に対してだけ行います。
+     * ページより後ろの行は全体の件数を数えるためだけに読み飛ばします。
+     *
+     * @param page     0から始まるページ番号
+     * @param pageSize 1ページあたりの件数
+     * @return ページ。ページ番号が範囲外の場合はタスクが空のページ
+     * @throws UncheckedIOException 読み込みに失敗した場合。途中までの行や件数を正しいページとして返すことはありません
+     */
+    public TaskPage findPage(int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("ページ番号は0以上、1ページあたりの件数は1以上を指定してください");
+        }
+        long start = FIND_PAGE.start();
+        Map<Integer, User> users = userDataAccess.usersByCode();
+        List<Task> tasks = new ArrayList<>(pageSize);
+        long first = (long) page * pageSize;
+        long count = 0;
+        try (CsvCursor cursor = openForRead()) {
+            cursor.nextRow();
+            while (cursor.nextRow()) {
+                if (count >= first && count < first + pageSize) {
+                    tasks.add(readListedTask(cursor, users));
                 }
+                count++;
             }
+            FIND_PAGE.addBytesRead(cursor.position());
         } catch (IOException e) {
-            e.printStackTrace();
+            FIND_PAGE.error();
+            throw new UncheckedIOException(e);
+        } finally {
+            FIND_PAGE.addRowsScanned(count);
+            FIND_PAGE.record(start);
+        }
+        return new TaskPage(tasks, page, pageSize, count);
+    }
+
+    private static Task readListedTask(CsvCursor cursor, Map<Integer, User> users) {
+        int code = cursor.nextInt();
+        String name = cursor.nextString();
+        int status = cursor.nextInt();
+        User repUser = users.get(cursor.nextInt());
+        return new Task(code, name, status, repUser != null ? repUser : UNKNOWN_USER);
+    }
+
+    /**
+     * 追記や置き換えと重ならないようにCSVを開きます。
+     * 開いた時点の内容を読み続けるため、ロックは開く間だけ保持します。
+     */
+    private CsvCursor openForRead() throws IOException {
+        fileLock.lockRead();
+        try {
+            return CsvCursor.open(Paths.get(filePath), readMode);
+        } finally {
+            fileLock.unlockRead();
+        }
+    }
+
+    private FileChannel openChannelForRead() throws IOException {
+        fileLock.lockRead();
+        try {
+            return FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        } finally {
+            fileLock.unlockRead();
         }
-        return new User(-1, "不明", "", "");
     }
 
     /**
      * タスクをCSVに保存します。
+     * 追記した行の位置はタスクコードの索引と担当ユーザーコードの索引にも反映します。
      * 
      * @param task 保存するタスク
+     * @throws UncheckedIOException 書き込みに失敗した場合。行が途中まで書き込まれている可能性があります
      */
     public void save(Task task) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            String line = task.getCode() + "," +
-                    task.getName() + "," +
-                    task.getStatus() + "," +
-                    task.getRepUser().getCode();
-            writer.newLine();
-            writer.write(line);
+        long start = SAVE.start();
+        Path path = Paths.get(filePath);
+        byte[] line = ("\n" + createLine(task)).getBytes(StandardCharsets.UTF_8);
+        fileLock.lockWrite();
+        try {
+            long sizeBefore;
+            fileLock.lockPublish();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                sizeBefore = channel.size();
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                fileLock.unlockPublish();
+            }
+            SAVE.addBytesWritten(line.length);
+            offsetIndex.appended(task.getCode(), sizeBefore + 1, sizeBefore);
+            repUserIndex.appended(new int[] { task.getCode() }, new int[] { task.getRepUser().getCode() },
+                    new long[] { sizeBefore + 1 }, sizeBefore);
+        } catch (IOException e) {
+            SAVE.error();
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.unlockWrite();
+            SAVE.record(start);
+        }
+    }
 
+    /**
+     * 複数のタスクをまとめてCSVに保存します。
+     * 全ての行を1つのバッファに組み立て、ファイルを1回開いて1回の追記で書き込みます。
+     * 追記した行の位置はタスクコードの索引と担当ユーザーコードの索引にもまとめて反映します。
+     *
+     * @param tasks 保存するタスク
+     * @throws UncheckedIOException 書き込みに失敗した場合。一部の行だけが書き込まれている可能性があります
+     */
+    public void saveAll(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        long start = SAVE_ALL.start();
+        int[] codes = new int[tasks.size()];
+        int[] repUserCodes = new int[tasks.size()];
+        long[] rowOffsets = new long[tasks.size()];
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(tasks.size() * 32);
+        for (int i = 0; i < tasks.size(); i++) {
+            codes[i] = tasks.get(i).getCode();
+            repUserCodes[i] = tasks.get(i).getRepUser().getCode();
+            // 追記前のサイズからの相対位置。書き込んだ後にサイズを足す
+            rowOffsets[i] = lines.size() + 1;
+            lines.writeBytes(("\n" + createLine(tasks.get(i))).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] bytes = lines.toByteArray();
+
+        Path path = Paths.get(filePath);
+        fileLock.lockWrite();
+        try {
+            long sizeBefore;
+            fileLock.lockPublish();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                sizeBefore = channel.size();
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                fileLock.unlockPublish();
+            }
+            for (int i = 0; i < rowOffsets.length; i++) {
+                rowOffsets[i] += sizeBefore;
+            }
+            SAVE_ALL.addBytesWritten(bytes.length);
+            offsetIndex.appended(codes, rowOffsets, sizeBefore);
+            repUserIndex.appended(codes, repUserCodes, rowOffsets, sizeBefore);
+        } catch (IOException e) {
+            SAVE_ALL.error();
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.unlockWrite();
+            SAVE_ALL.record(start);
+        }
+    }
+
+    /**
+     * タスクコードが既に使われているかを判定します。
+     * 既に知っているコードであればメモリ上の集合だけで判定し、CSVにはアクセスしません。
+     * 知らないコードの場合は、他のプロセスの追記を取り込んでから判定します。
+     *
+     * @see com.taskapp.dataaccess.TaskOffsetIndex#knowsCode(int)
+     * @param code タスクコード
+     * @return 使われていればtrue
+     */
+    public boolean existsCode(int code) {
+        if (offsetIndex.knowsCode(code)) {
+            return true;
+        }
+        fileLock.lockRead();
+        try {
+            return offsetIndex.containsCode(code);
+        } catch (NoSuchFileException e) {
+            return false;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
+        } finally {
+            fileLock.unlockRead();
+        }
+    }
+
+    /**
+     * 新しいタスクのコードを採番します。
+     * コードはシーケンスのファイルからブロック単位で予約したものを払い出すため、CSVは走査しません。
+     * 払い出したコードが手入力で既に使われている場合もあるため、保存する前に{@link #existsCode(int)}で確認してください。
+     *
+     * @see com.taskapp.dataaccess.TaskCodeSequence#next()
+     * @return 採番したタスクコード
+     * @throws AppException 採番に失敗した場合
+     */
+    public int nextCode() throws AppException {
+        try {
+            return codeSequence.next();
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new AppException("タスクコードの採番に失敗しました");
         }
     }
 
     /**
      * コードを基にタスクデータを1件取得します。
+     * タスクコードの索引から行の位置を求め、その1行だけを読み込みます。
+     * 索引の位置が行の先頭でないか、その行のタスクコードが一致しない場合は、索引を作り直して全件走査で探します。
      * 
+     * @see com.taskapp.dataaccess.TaskOffsetIndex#offsetOf(int)
      * @param code 取得するタスクのコード
      * @return 取得したタスク
      */
     public Task findByCode(int code) throws AppException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",", -1);
-                int taskCode = Integer.parseInt(parts[0].trim());
-                if (taskCode == code) {
-                    String name = parts[1].trim();
-                    int status = Integer.parseInt(parts[2].trim());
-                    int repUserCode = Integer.parseInt(parts[3].trim());
+        long start = FIND_BY_CODE.start();
+        try {
+            return readByCode(code);
+        } finally {
+            FIND_BY_CODE.record(start);
+        }
+    }
+
+    private Task readByCode(int code) throws AppException {
+        Path path = Paths.get(filePath);
+        try {
+            long offset;
+            CsvCursor row = null;
+            fileLock.lockRead();
+            try {
+                offset = offsetIndex.offsetOf(code);
+                if (offset >= 0) {
+                    // 直前の改行から読み、索引の位置が行の先頭であることも確かめる
+                    row = CsvCursor.openAt(path, Math.max(0, offset - 1));
+                }
+            } finally {
+                fileLock.unlockRead();
+            }
+            if (offset < 0) {
+                throw new AppException("存在するタスクコードを入力してください。");
+            }
+            try (CsvCursor cursor = row) {
+                if (isRowOf(cursor, offset, code)) {
+                    Task task = readTask(cursor, code);
+                    FIND_BY_CODE.addRowsScanned(1);
+                    FIND_BY_CODE.addBytesRead(cursor.position() - offset);
+                    return task;
+                }
+            }
+            // 索引が指す行が一致しない場合は索引を作り直し、今回は全件走査で探す
+            offsetIndex.invalidate();
+        } catch (IOException e) {
+            e.printStackTrace();
+            FIND_BY_CODE.error();
+        }
+        return scanByCode(code);
+    }
+
+    /**
+     * カーソルの次の行が、指定した位置から始まるタスクコードの行であるかを確かめます。
+     * 索引が古い場合は行の途中や別の列を指していることがあるため、数値として読めない場合も一致しないものとします。
+     *
+     * @param cursor 指定した位置の手前を指しているカーソル
+     * @param offset 索引から得た行の先頭の位置
+     * @param code   タスクコード
+     * @return 一致する場合はtrue
+     * @throws IOException 読み込みに失敗した場合
+     */
+    private static boolean isRowOf(CsvCursor cursor, long offset, int code) throws IOException {
+        if (!cursor.nextRow() || cursor.rowOffset() != offset) {
+            return false;
+        }
+        try {
+            return cursor.nextInt() == code;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 担当ユーザーコードを基に、そのユーザーが担当するタスクをCSV上の順に取得します。
+     * 担当ユーザーコードの索引から行の位置を求めて該当する行だけを読み込むため、
+     * かかる時間は全体の件数ではなく担当するタスクの件数に比例します。
+     *
+     * @see com.taskapp.dataaccess.TaskRepUserIndex#offsetsOf(int)
+     * @param repUserCode 担当ユーザーコード
+     * @return 担当するタスクのリスト
+     */
+    public List<Task> findByRepUserCode(int repUserCode) {
+        long start = FIND_BY_REP_USER_CODE.start();
+        try {
+            return readByRepUserCode(repUserCode);
+        } finally {
+            FIND_BY_REP_USER_CODE.record(start);
+        }
+    }
+
+    private List<Task> readByRepUserCode(int repUserCode) {
+        List<Task> tasks = new ArrayList<>();
+        User repUser = userDataAccess.usersByCode().getOrDefault(repUserCode, UNKNOWN_USER);
+        fileLock.lockRead();
+        try {
+            long[] offsets = repUserIndex.offsetsOf(repUserCode);
+            if (offsets.length == 0) {
+                return tasks;
+            }
+            try (CsvCursor cursor = CsvCursor.scanFrom(Paths.get(filePath), offsets[0])) {
+                for (long offset : offsets) {
+                    cursor.seek(offset);
+                    if (!cursor.nextRow()) {
+                        tasks = null;
+                        break;
+                    }
+                    int code = cursor.nextInt();
+                    String name = cursor.nextString();
+                    int status = cursor.nextInt();
+                    if (cursor.nextInt() != repUserCode) {
+                        tasks = null;
+                        break;
+                    }
+                    tasks.add(new Task(code, name, status, repUser));
+                    FIND_BY_REP_USER_CODE.addBytesRead(cursor.position() - offset);
+                }
+            }
+            if (tasks != null) {
+                FIND_BY_REP_USER_CODE.addRowsScanned(tasks.size());
+            }
+        } catch (NoSuchFileException e) {
+            return tasks;
+        } catch (IOException e) {
+            e.printStackTrace();
+            FIND_BY_REP_USER_CODE.error();
+        } finally {
+            fileLock.unlockRead();
+        }
+        if (tasks == null) {
+            // 索引が指す行が一致しない場合は索引を作り直し、今回は全件走査で探す
+            repUserIndex.invalidate();
+            return scanByRepUserCode(repUserCode, repUser);
+        }
+        return tasks;
+    }
 
-                    UserDataAccess uda = new UserDataAccess();
-                    User user = uda.findByCode(repUserCode);
+    private List<Task> scanByRepUserCode(int repUserCode, User repUser) {
+        List<Task> tasks = new ArrayList<>();
+        TaskTable table = findTable();
+        for (int row = 0; row < table.size(); row++) {
+            if (table.repUserCode(row) == repUserCode && table.rowOf(table.code(row)) == row) {
+                tasks.add(table.task(row, code -> repUser));
+            }
+        }
+        return tasks;
+    }
 
-                    return new Task(taskCode, name, status, user);
+    private Task scanByCode(int code) throws AppException {
+        try (CsvCursor cursor = openForRead()) {
+            cursor.nextRow();
+            while (cursor.nextRow()) {
+                int taskCode = cursor.nextInt();
+                if (taskCode == code) {
+                    return readTask(cursor, taskCode);
                 }
             }
         } catch (IOException e) {
@@ -127,30 +567,373 @@ public class TaskDataAccess {
         throw new AppException("存在するタスクコードを入力してください。");
     }
 
+    private Task readTask(CsvCursor cursor, int code) throws AppException {
+        String name = cursor.nextString();
+        int status = cursor.nextInt();
+        int repUserCode = cursor.nextInt();
+
+        User user = userDataAccess.findByCode(repUserCode);
+
+        return new Task(code, name, status, user);
+    }
+
     /**
      * タスクデータを更新します。
+     * 一時ファイルに書き出してから置き換えるため、読み込み中の処理が書きかけのファイルを見ることはありません。
+     * 書き出しながら各行の位置を記録し、タスクコードの索引も置き換えます。
      * 
      * @param updateTask 更新するタスク
+     * @throws UncheckedIOException 書き込みに失敗した場合。元のファイルは変更されません
      */
     public void update(Task updateTask) {
+        long start = UPDATE.start();
+        fileLock.lockWrite();
+        try {
+            rewrite(updateTask, UPDATE);
+        } finally {
+            fileLock.unlockWrite();
+            UPDATE.record(start);
+        }
+    }
+
+    /**
+     * タスクのステータスが期待した値の場合だけ、新しいステータスに変更します。
+     * 確認と変更は同じファイルへの他の書き込みと排他して行うため、同時に変更しようとしても一方だけが成功します。
+     * ステータスの桁数が変わらない場合は、ファイル全体を書き直さずにステータスの列だけをその場で書き換えます。
+     *
+     * @param code     変更するタスクのコード
+     * @param expected 変更前に期待するステータス
+     * @param next     新しいステータス
+     * @return 変更した場合はtrue、ステータスが期待した値でなかった場合はfalse
+     * @throws AppException タスクコードが存在しない場合
+     * @throws UncheckedIOException 読み込みか書き込みに失敗した場合
+     */
+    public boolean compareAndSetStatus(int code, int expected, int next) throws AppException {
+        long start = COMPARE_AND_SET_STATUS.start();
+        try {
+            return compareAndSet(code, expected, next);
+        } finally {
+            COMPARE_AND_SET_STATUS.record(start);
+        }
+    }
+
+    private boolean compareAndSet(int code, int expected, int next) throws AppException {
+        Path path = Paths.get(filePath);
+        fileLock.lockWrite();
+        try {
+            long offset = offsetIndex.offsetOf(code);
+            if (offset >= 0) {
+                long statusOffset;
+                int statusLength;
+                int current;
+                try (CsvCursor cursor = CsvCursor.openAt(path, offset)) {
+                    if (!cursor.nextRow() || cursor.nextInt() != code) {
+                        offsetIndex.invalidate();
+                        return compareAndSetByRewrite(code, expected, next);
+                    }
+                    cursor.skipField();
+                    statusOffset = cursor.fieldOffset();
+                    statusLength = cursor.fieldLength();
+                    current = cursor.nextInt();
+                }
+                if (current != expected) {
+                    return false;
+                }
+                byte[] replacement = Integer.toString(next).getBytes(StandardCharsets.US_ASCII);
+                if (replacement.length == statusLength) {
+                    writeInPlace(path, statusOffset, replacement);
+                    return true;
+                }
+            }
+            return compareAndSetByRewrite(code, expected, next);
+        } catch (IOException e) {
+            COMPARE_AND_SET_STATUS.error();
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.unlockWrite();
+        }
+    }
+
+    /**
+     * 指定したタスクの現在のステータスを、CSVを1回走査して取得します。
+     * タスク名や担当者は読み飛ばすため、行ごとのオブジェクト生成はありません。
+     * 同じコードの行が複数ある場合は先頭の行のステータスを返します。
+     *
+     * @param codes 取得するタスクのコード
+     * @return タスクコードと現在のステータスの組。存在しないコードは含みません
+     */
+    public Map<Integer, Integer> findStatuses(Set<Integer> codes) {
+        Map<Integer, Integer> statuses = new HashMap<>();
+        if (codes.isEmpty()) {
+            return statuses;
+        }
+        try (CsvCursor cursor = openForRead()) {
+            cursor.nextRow();
+            while (cursor.nextRow() && statuses.size() < codes.size()) {
+                int code = cursor.nextInt();
+                if (codes.contains(code) && !statuses.containsKey(code)) {
+                    cursor.skipField();
+                    statuses.put(code, cursor.nextInt());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return statuses;
+    }
+
+    /**
+     * 指定したタスクの担当ユーザーコードを、CSVを1回走査して取得します。
+     * {@link #findStatuses(Set)}と同じく担当者は解決せず、同じコードの行が複数ある場合は先頭の行の値を返します。
+     *
+     * @param codes 取得するタスクのコード
+     * @return タスクコードと担当ユーザーコードの組。存在しないコードは含みません
+     */
+    public Map<Integer, Integer> findRepUserCodes(Set<Integer> codes) {
+        Map<Integer, Integer> repUserCodes = new HashMap<>();
+        if (codes.isEmpty()) {
+            return repUserCodes;
+        }
+        try (CsvCursor cursor = openForRead()) {
+            cursor.nextRow();
+            while (cursor.nextRow() && repUserCodes.size() < codes.size()) {
+                int code = cursor.nextInt();
+                if (codes.contains(code) && !repUserCodes.containsKey(code)) {
+                    cursor.skipField();
+                    cursor.skipField();
+                    repUserCodes.put(code, cursor.nextInt());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return repUserCodes;
+    }
+
+    /**
+     * 複数のタスクのステータスを、それぞれ指定した変更前のステータスのままの場合だけまとめて書き換えます。
+     * 書き換える全ての値の桁数が変わらない場合は各行のステータスの部分だけをその場で書き換え、
+     * そうでない場合はCSV全体を1回だけ書き直して全ての変更を反映します。
+     * どちらの場合も、読み込み側からは全ての変更が同時に反映されたように見えます。
+     *
+     * @see #compareAndSetStatus(int, int, int)
+     * @param expected タスクコードと変更前のステータスの組
+     * @param next     タスクコードと変更後のステータスの組
+     * @return 書き換えたタスクのコード
+     * @throws UncheckedIOException 読み込みか書き込みに失敗した場合。その場で書き換えていた場合は一部だけが反映されている可能性があります
+     */
+    public Set<Integer> compareAndSetStatusAll(Map<Integer, Integer> expected, Map<Integer, Integer> next) {
+        Set<Integer> changed = new HashSet<>();
+        if (next.isEmpty()) {
+            return changed;
+        }
+        Path path = Paths.get(filePath);
+        fileLock.lockWrite();
+        try {
+            long[] positions = new long[next.size()];
+            byte[][] replacements = new byte[next.size()][];
+            int count = 0;
+            for (Map.Entry<Integer, Integer> entry : next.entrySet()) {
+                int code = entry.getKey();
+                long offset = offsetIndex.offsetOf(code);
+                if (offset < 0) {
+                    return compareAndSetAllByRewrite(expected, next);
+                }
+                try (CsvCursor cursor = CsvCursor.openAt(path, offset)) {
+                    if (!cursor.nextRow() || cursor.nextInt() != code) {
+                        offsetIndex.invalidate();
+                        return compareAndSetAllByRewrite(expected, next);
+                    }
+                    cursor.skipField();
+                    long statusOffset = cursor.fieldOffset();
+                    int statusLength = cursor.fieldLength();
+                    if (cursor.nextInt() != expected.get(code)) {
+                        continue;
+                    }
+                    byte[] replacement = Integer.toString(entry.getValue()).getBytes(StandardCharsets.US_ASCII);
+                    if (replacement.length != statusLength) {
+                        return compareAndSetAllByRewrite(expected, next);
+                    }
+                    positions[count] = statusOffset;
+                    replacements[count] = replacement;
+                    count++;
+                    changed.add(code);
+                }
+            }
+            writeAllInPlace(path, positions, replacements, count);
+            return changed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.unlockWrite();
+        }
+    }
+
+    private void writeAllInPlace(Path path, long[] positions, byte[][] replacements, int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        long sizeBefore;
+        fileLock.lockPublish();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            sizeBefore = channel.size();
+            for (int i = 0; i < count; i++) {
+                ByteBuffer buffer = ByteBuffer.wrap(replacements[i]);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, positions[i] + buffer.position());
+                }
+            }
+        } finally {
+            fileLock.unlockPublish();
+        }
+        offsetIndex.rewrittenInPlace(sizeBefore);
+        repUserIndex.rewrittenInPlace(sizeBefore);
+    }
+
+    /**
+     * CSVを1回走査しながら全ての変更を反映した一時ファイルを書き出し、元のファイルと置き換えます。
+     * 行はタスク名や担当者を解決せずにそのまま書き写し、ステータスの列だけを書き換えます。
+     * 同じコードの行が複数ある場合は、索引と同じく先頭の行だけを対象にします。
+     */
+    private Set<Integer> compareAndSetAllByRewrite(Map<Integer, Integer> expected, Map<Integer, Integer> next)
+            throws IOException {
+        Set<Integer> changed = new HashSet<>();
+        Path path = Paths.get(filePath);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        IntLongMap offsets = new IntLongMap();
+        TaskRepUserIndex.Rows rows = repUserIndex.isLoaded() ? new TaskRepUserIndex.Rows() : null;
+        try (CsvCursor cursor = openForRead();
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            byte[] header = HEADER.getBytes(StandardCharsets.UTF_8);
+            out.write(header);
+            long position = header.length;
+
+            cursor.nextRow();
+            StringBuilder line = new StringBuilder(64);
+            while (cursor.nextRow()) {
+                int code = cursor.nextInt();
+                String name = cursor.nextString();
+                int status = cursor.nextInt();
+                int repUserCode = cursor.nextInt();
+                if (offsets.putIfAbsent(code, position + 1)) {
+                    Integer target = next.get(code);
+                    if (target != null && status == expected.get(code)) {
+                        status = target;
+                        changed.add(code);
+                    }
+                }
+                if (rows != null) {
+                    rows.add(code, repUserCode, position + 1);
+                }
+                line.setLength(0);
+                line.append('\n').append(code).append(',').append(name).append(',').append(status).append(',')
+                        .append(repUserCode);
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                position += bytes.length;
+            }
+        }
+
+        if (changed.isEmpty()) {
+            Files.deleteIfExists(tmp);
+            return changed;
+        }
+        fileLock.lockPublish();
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            offsetIndex.rewritten(offsets);
+            rewrittenRepUsers(rows);
+        } finally {
+            fileLock.unlockPublish();
+        }
+        return changed;
+    }
+
+    /**
+     * 書き直したCSVの行で担当ユーザーコードの索引を置き換えます。
+     * 書き直す前に索引を作成していなかった場合は何もせず、次の参照で作成します。
+     */
+    private void rewrittenRepUsers(TaskRepUserIndex.Rows rows) throws IOException {
+        if (rows != null) {
+            repUserIndex.rewritten(rows);
+        } else {
+            repUserIndex.invalidate();
+        }
+    }
+
+    private void writeInPlace(Path path, long position, byte[] bytes) throws IOException {
+        long sizeBefore;
+        fileLock.lockPublish();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            sizeBefore = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } finally {
+            fileLock.unlockPublish();
+        }
+        offsetIndex.rewrittenInPlace(sizeBefore);
+        repUserIndex.rewrittenInPlace(sizeBefore);
+    }
+
+    private boolean compareAndSetByRewrite(int code, int expected, int next) throws AppException {
+        Task task = scanByCode(code);
+        if (task.getStatus() != expected) {
+            return false;
+        }
+        task.setStatus(next);
+        rewrite(task, COMPARE_AND_SET_STATUS);
+        return true;
+    }
+
+    /**
+     * タスクを1件差し替えたCSV全体を書き出し、元のファイルと置き換えます。
+     * 書き出した行数とバイト数は呼び出し元の操作の計測値に加えます。
+     * 書き出しか置き換えに失敗した場合はUncheckedIOExceptionをスローし、元のファイルはそのまま残ります。
+     */
+    private void rewrite(Task updateTask, OperationMetrics metrics) {
         List<Task> allTasks = findAll();
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            writer.write("Code,Name,Status,Rep_User_Code");
-            writer.newLine();
+        Path path = Paths.get(filePath);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        IntLongMap offsets = new IntLongMap(allTasks.size());
+        TaskRepUserIndex.Rows rows = repUserIndex.isLoaded() ? new TaskRepUserIndex.Rows() : null;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            byte[] header = HEADER.getBytes(StandardCharsets.UTF_8);
+            out.write(header);
+            long position = header.length;
 
             for (Task task : allTasks) {
                 if (task.getCode() == updateTask.getCode()) {
                     task = updateTask;
                 }
 
-                writer.write(task.getCode() + "," + task.getName() + "," + task.getStatus() + ","
-                        + task.getRepUser().getCode());
-                writer.newLine();
+                byte[] line = ("\n" + createLine(task)).getBytes(StandardCharsets.UTF_8);
+                out.write(line);
+                offsets.putIfAbsent(task.getCode(), position + 1);
+                if (rows != null) {
+                    rows.add(task.getCode(), task.getRepUser().getCode(), position + 1);
+                }
+                position += line.length;
             }
+            metrics.addRowsScanned(allTasks.size());
+            metrics.addBytesWritten(position);
+        } catch (IOException e) {
+            metrics.error();
+            throw new UncheckedIOException(e);
+        }
 
+        fileLock.lockPublish();
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            offsetIndex.rewritten(offsets);
+            rewrittenRepUsers(rows);
         } catch (IOException e) {
-            e.printStackTrace();
+            metrics.error();
+            throw new UncheckedIOException(e);
+        } finally {
+            fileLock.unlockPublish();
         }
     }
 
@@ -167,12 +950,22 @@ public class TaskDataAccess {
     // }
     // }
 
+    /**
+     * タスクCSVのロックの取得を待った時間の集計を取得します。
+     *
+     * @return 待ち時間の集計
+     */
+    public LockWaitStats lockWaitStats() {
+        return fileLock.waitStats();
+    }
+
     /**
      * タスクデータをCSVに書き込むためのフォーマットを作成します。
      * 
      * @param task フォーマットを作成するタスク
      * @return CSVに書き込むためのフォーマット文字列
      */
-    // private String createLine(Task task) {
-    // }
+    private String createLine(Task task) {
+        return task.getCode() + "," + task.getName() + "," + task.getStatus() + "," + task.getRepUser().getCode();
+    }
 }
\ No newline at end of file
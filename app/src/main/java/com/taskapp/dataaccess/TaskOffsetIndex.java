@@ -0,0 +1,382 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * タスクコードからタスクCSV上の行の位置(バイト単位)を引く索引です。
+ * 索引は「タスクCSVのパス + .idx」のファイルにも保存し、次回起動時はCSVを走査せずに読み込みます。
+ * 保存した索引にはCSVのサイズと更新日時を記録しておき、一致しない場合は作り直します。
+ * CSVが追記で伸びただけの場合は、伸びた部分だけを走査して索引に加えます。
+ * 同じコードが複数行ある場合は、線形探索と同じく先頭の行を指します。
+ * 索引に載っているコードは{@link TaskCodeSet}にも保持し、コードの重複をCSVを読まずに判定できるようにします。
+ */
+final class TaskOffsetIndex {
+    private static final int MAGIC = 0x54494458; // "TIDX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int ENTRY_SIZE = 12;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final Map<Path, TaskOffsetIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path dataPath;
+    private final Path indexPath;
+
+    private IntLongMap offsets;
+    private volatile TaskCodeSet codes;
+    private Object fileKey;
+    private long size;
+    private FileTime modified;
+
+    private TaskOffsetIndex(Path dataPath) {
+        this.dataPath = dataPath;
+        this.indexPath = dataPath.resolveSibling(dataPath.getFileName() + ".idx");
+    }
+
+    /**
+     * 指定したタスクCSVに対応する索引を取得します。
+     *
+     * @param dataPath タスクCSVのパス
+     * @return 共有された索引
+     */
+    static TaskOffsetIndex of(Path dataPath) {
+        return INDEXES.computeIfAbsent(dataPath.toAbsolutePath().normalize(), TaskOffsetIndex::new);
+    }
+
+    /**
+     * タスクコードに対応する行の位置を取得します。
+     *
+     * @param code タスクコード
+     * @return 行の先頭のバイト位置、存在しない場合は-1
+     * @throws IOException CSVの読み込みに失敗した場合
+     */
+    synchronized long offsetOf(int code) throws IOException {
+        refresh();
+        return offsets.get(code, -1);
+    }
+
+    /**
+     * これまでに索引に載せたタスクコードかを、ロックもファイルへのアクセスもせずに判定します。
+     * 索引が未作成の場合や判定できない場合はfalseを返すため、falseの場合は{@link #containsCode(int)}で確認してください。
+     * タスクの削除は行わないため、一度載せたコードがCSVから消えることはありません。
+     *
+     * @param code タスクコード
+     * @return 既に知っているコードであればtrue
+     */
+    boolean knowsCode(int code) {
+        TaskCodeSet known = codes;
+        return known != null && known.definitelyContains(code);
+    }
+
+    /**
+     * タスクコードがCSVに存在するかを判定します。
+     * 通常の参照と同じくCSVの属性を確認し、追記分があれば取り込んでから判定します。
+     *
+     * @param code タスクコード
+     * @return 存在すればtrue
+     * @throws IOException CSVの読み込みに失敗した場合
+     */
+    synchronized boolean containsCode(int code) throws IOException {
+        refresh();
+        return codes.contains(code);
+    }
+
+    /**
+     * CSVに存在する最大のタスクコードを取得します。
+     *
+     * @return 最大のタスクコード、タスクが1件もない場合はInteger.MIN_VALUE
+     * @throws IOException CSVの読み込みに失敗した場合
+     */
+    synchronized int maxCode() throws IOException {
+        refresh();
+        return codes.max();
+    }
+
+    /**
+     * 追記した行を索引に加えます。
+     * 追記前のCSVが索引と一致していない場合は、通常の更新確認と同じく差分を走査します。
+     *
+     * @param code       追記したタスクのコード
+     * @param offset     追記した行の先頭のバイト位置
+     * @param sizeBefore 追記前のCSVのサイズ
+     * @throws IOException CSVの読み込みに失敗した場合
+     */
+    synchronized void appended(int code, long offset, long sizeBefore) throws IOException {
+        appended(new int[] { code }, new long[] { offset }, sizeBefore);
+    }
+
+    /**
+     * まとめて追記した行を索引に加えます。
+     * 同じコードが複数含まれる場合は、既存の行と同じく先に現れた行を優先します。
+     *
+     * @param codes      追記したタスクのコード(追記した順)
+     * @param rowOffsets 追記した各行の先頭のバイト位置
+     * @param sizeBefore 追記前のCSVのサイズ
+     * @throws IOException CSVの読み込みに失敗した場合
+     */
+    synchronized void appended(int[] codes, long[] rowOffsets, long sizeBefore) throws IOException {
+        if (offsets == null || size != sizeBefore) {
+            refresh();
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        if (!Objects.equals(attrs.fileKey(), fileKey)) {
+            refresh();
+            return;
+        }
+        IntLongMap added = new IntLongMap(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            if (offsets.putIfAbsent(codes[i], rowOffsets[i])) {
+                added.put(codes[i], rowOffsets[i]);
+                this.codes.add(codes[i]);
+            }
+        }
+        stamp(attrs);
+        persistAppended(added);
+    }
+
+    /**
+     * CSVを書き直した後に、書き込み時に求めた位置で索引を置き換えます。
+     *
+     * @param newOffsets 書き直したCSVにおける各コードの行の位置
+     * @throws IOException CSVの属性を取得できなかった場合
+     */
+    synchronized void rewritten(IntLongMap newOffsets) throws IOException {
+        offsets = newOffsets;
+        codes = TaskCodeSet.of(newOffsets);
+        stamp(Files.readAttributes(dataPath, BasicFileAttributes.class));
+        persistAll();
+    }
+
+    /**
+     * 行の位置を変えずにCSVの一部を書き換えた後に、索引を作り直さずに済むよう記録しているサイズと更新日時を合わせます。
+     * 書き換える前に索引がCSVと一致していなかった場合は何もせず、次の参照で通常どおり確認します。
+     *
+     * @param sizeBefore 書き換え前のCSVのサイズ
+     * @throws IOException CSVの属性を取得できなかった場合
+     */
+    synchronized void rewrittenInPlace(long sizeBefore) throws IOException {
+        if (offsets == null || size != sizeBefore) {
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        if (!Objects.equals(attrs.fileKey(), fileKey) || attrs.size() != size) {
+            return;
+        }
+        stamp(attrs);
+        persistAppended(new IntLongMap());
+    }
+
+    /**
+     * 次の参照で索引を作り直すようにします。
+     */
+    synchronized void invalidate() {
+        offsets = null;
+        codes = null;
+        try {
+            Files.deleteIfExists(indexPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void refresh() throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        if (offsets != null && isCurrent(attrs)) {
+            return;
+        }
+        if (offsets != null && attrs.fileKey() != null && attrs.fileKey().equals(fileKey) && attrs.size() > size) {
+            catchUp(attrs);
+            return;
+        }
+        if (offsets == null && loadPersisted(attrs)) {
+            return;
+        }
+        rebuild(attrs);
+    }
+
+    private boolean isCurrent(BasicFileAttributes attrs) {
+        return Objects.equals(attrs.fileKey(), fileKey) && attrs.size() == size
+                && attrs.lastModifiedTime().equals(modified);
+    }
+
+    private void stamp(BasicFileAttributes attrs) {
+        fileKey = attrs.fileKey();
+        size = attrs.size();
+        modified = attrs.lastModifiedTime();
+    }
+
+    private void rebuild(BasicFileAttributes attrs) throws IOException {
+        IntLongMap rebuilt = new IntLongMap();
+        try (CsvCursor cursor = CsvCursor.open(dataPath)) {
+            cursor.nextRow();
+            scan(cursor, rebuilt, null);
+        }
+        offsets = rebuilt;
+        codes = TaskCodeSet.of(rebuilt);
+        stamp(attrs);
+        persistAll();
+    }
+
+    /**
+     * 前回確認したサイズ以降に追記された行だけを走査します。
+     */
+    private void catchUp(BasicFileAttributes attrs) throws IOException {
+        IntLongMap added = new IntLongMap();
+        try (CsvCursor cursor = CsvCursor.scanFrom(dataPath, size)) {
+            scan(cursor, offsets, added);
+        }
+        codes.addAll(added);
+        stamp(attrs);
+        persistAppended(added);
+    }
+
+    private static void scan(CsvCursor cursor, IntLongMap target, IntLongMap added) throws IOException {
+        while (cursor.nextRow()) {
+            int code;
+            try {
+                code = cursor.nextInt();
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (target.putIfAbsent(code, cursor.rowOffset()) && added != null) {
+                added.put(code, cursor.rowOffset());
+            }
+        }
+    }
+
+    private boolean loadPersisted(BasicFileAttributes attrs) {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != attrs.size()
+                    || header.getLong() != attrs.lastModifiedTime().toMillis()) {
+                return false;
+            }
+            long entries = (channel.size() - HEADER_SIZE) / ENTRY_SIZE;
+            IntLongMap loaded = new IntLongMap((int) Math.min(entries, Integer.MAX_VALUE));
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE / ENTRY_SIZE * ENTRY_SIZE);
+            long position = HEADER_SIZE;
+            long end = HEADER_SIZE + entries * ENTRY_SIZE;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                readFully(channel, buffer, position);
+                position += buffer.limit();
+                while (buffer.hasRemaining()) {
+                    loaded.putIfAbsent(buffer.getInt(), buffer.getLong());
+                }
+            }
+            offsets = loaded;
+            codes = TaskCodeSet.of(loaded);
+            stamp(attrs);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 索引全体を一時ファイルに書き出してから置き換えます。
+     * 読み込みロックだけで作り直した複数のプロセスが同時に書き出すことがあるため、一時ファイルは書き出すたびに別の名前にします。
+     */
+    private void persistAll() {
+        Path tmp;
+        try {
+            tmp = Files.createTempFile(indexPath.toAbsolutePath().getParent(), indexPath.getFileName() + ".", ".tmp");
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+                putHeader(buffer);
+                writeEntries(channel, buffer, offsets);
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // 残った一時ファイルは次の書き出しに影響しない
+            }
+        }
+    }
+
+    /**
+     * 追加分のエントリを索引ファイルの末尾に書き足し、ヘッダーのサイズと更新日時を書き換えます。
+     */
+    private void persistAppended(IntLongMap added) {
+        if (!Files.exists(indexPath)) {
+            persistAll();
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            channel.position(HEADER_SIZE + (channel.size() - HEADER_SIZE) / ENTRY_SIZE * ENTRY_SIZE);
+            writeEntries(channel, buffer, added);
+
+            buffer.clear();
+            putHeader(buffer);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, HEADER_SIZE - buffer.remaining());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void putHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified.toMillis());
+    }
+
+    private static void writeEntries(FileChannel channel, ByteBuffer buffer, IntLongMap entries) throws IOException {
+        for (int slot = 0; slot < entries.slots(); slot++) {
+            if (!entries.occupied(slot)) {
+                continue;
+            }
+            if (buffer.remaining() < ENTRY_SIZE) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(entries.keyAt(slot)).putLong(entries.valueAt(slot));
+        }
+        flush(channel, buffer);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("索引ファイルが途中で終わっています");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,234 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * タスクCSVの行の位置(バイト単位)を、担当ユーザーコードごとに引く索引です。
+ * 各担当ユーザーコードには、担当するタスクの行の位置をファイル上の順に並べたリスト(ポスティングリスト)を持ちます。
+ * 同じコードの行が複数ある場合は、{@link TaskOffsetIndex}と同じく先頭の行だけを載せます。
+ * 索引は最初の参照で作り、保存・書き直しのたびに書き込み側から反映するため、参照のたびにCSVを走査することはありません。
+ * 他のプロセスが追記した場合は伸びた分だけを走査し、置き換えられた場合は作り直します。
+ * ステータスは行から読むため、ステータスの変更で索引を作り直す必要はありません。
+ */
+final class TaskRepUserIndex {
+    private static final Map<Path, TaskRepUserIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path dataPath;
+
+    private Map<Integer, Postings> byRepUserCode;
+    private TaskCodeSet codes;
+    private Object fileKey;
+    private long size;
+    private FileTime modified;
+
+    private TaskRepUserIndex(Path dataPath) {
+        this.dataPath = dataPath;
+    }
+
+    /**
+     * 指定したタスクCSVに対応する索引を取得します。
+     *
+     * @param dataPath タスクCSVのパス
+     * @return 共有された索引
+     */
+    static TaskRepUserIndex of(Path dataPath) {
+        return INDEXES.computeIfAbsent(dataPath.toAbsolutePath().normalize(), TaskRepUserIndex::new);
+    }
+
+    /**
+     * 担当ユーザーコードに該当する行の位置を取得します。
+     * 書き込み中の行を途中まで読まないよう、呼び出し側でファイルの読み込みロックを保持してください。
+     *
+     * @param repUserCode 担当ユーザーコード
+     * @return 昇順に並んだ行の位置
+     * @throws IOException タスクCSVの読み込みに失敗した場合
+     */
+    synchronized long[] offsetsOf(int repUserCode) throws IOException {
+        refresh();
+        Postings postings = byRepUserCode.get(repUserCode);
+        return postings == null ? new long[0] : postings.toArray();
+    }
+
+    /**
+     * 索引を作成済みかを取得します。作成前は書き込み側から反映する必要はありません。
+     *
+     * @return 作成済みであればtrue
+     */
+    synchronized boolean isLoaded() {
+        return byRepUserCode != null;
+    }
+
+    /**
+     * まとめて追記した行を索引に加えます。
+     * 追記前のCSVが索引と一致していない場合は何もせず、次の参照で伸びた分を走査します。
+     *
+     * @param codes        追記したタスクのコード(追記した順)
+     * @param repUserCodes 追記したタスクの担当ユーザーコード
+     * @param rowOffsets   追記した各行の先頭のバイト位置
+     * @param sizeBefore   追記前のCSVのサイズ
+     * @throws IOException CSVの属性を取得できなかった場合
+     */
+    synchronized void appended(int[] codes, int[] repUserCodes, long[] rowOffsets, long sizeBefore)
+            throws IOException {
+        if (byRepUserCode == null || size != sizeBefore) {
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        if (!Objects.equals(attrs.fileKey(), fileKey)) {
+            return;
+        }
+        for (int i = 0; i < codes.length; i++) {
+            add(codes[i], repUserCodes[i], rowOffsets[i]);
+        }
+        stamp(attrs);
+    }
+
+    /**
+     * CSVを書き直した後に、書き込み時に集めた行の位置で索引を置き換えます。
+     *
+     * @param rows 書き直したCSVの全ての行
+     * @throws IOException CSVの属性を取得できなかった場合
+     */
+    synchronized void rewritten(Rows rows) throws IOException {
+        byRepUserCode = new HashMap<>();
+        codes = new TaskCodeSet();
+        for (int i = 0; i < rows.size; i++) {
+            add(rows.codes[i], rows.repUserCodes[i], rows.offsets[i]);
+        }
+        stamp(Files.readAttributes(dataPath, BasicFileAttributes.class));
+    }
+
+    /**
+     * 行の位置と担当者を変えずにCSVの一部を書き換えた後に、作り直さずに済むよう記録しているサイズと更新日時を合わせます。
+     *
+     * @param sizeBefore 書き換え前のCSVのサイズ
+     * @throws IOException CSVの属性を取得できなかった場合
+     */
+    synchronized void rewrittenInPlace(long sizeBefore) throws IOException {
+        if (byRepUserCode == null || size != sizeBefore) {
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        if (!Objects.equals(attrs.fileKey(), fileKey) || attrs.size() != size) {
+            return;
+        }
+        stamp(attrs);
+    }
+
+    /**
+     * 次の参照で索引を作り直すようにします。
+     */
+    synchronized void invalidate() {
+        byRepUserCode = null;
+        codes = null;
+    }
+
+    private void refresh() throws IOException {
+        if (!Files.exists(dataPath)) {
+            byRepUserCode = new HashMap<>();
+            codes = new TaskCodeSet();
+            fileKey = null;
+            size = 0;
+            modified = null;
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        if (byRepUserCode != null && Objects.equals(attrs.fileKey(), fileKey) && attrs.size() == size
+                && attrs.lastModifiedTime().equals(modified)) {
+            return;
+        }
+        if (byRepUserCode != null && attrs.fileKey() != null && attrs.fileKey().equals(fileKey)
+                && attrs.size() > size) {
+            try (CsvCursor cursor = CsvCursor.scanFrom(dataPath, size)) {
+                scan(cursor);
+            }
+        } else {
+            byRepUserCode = new HashMap<>();
+            codes = new TaskCodeSet();
+            try (CsvCursor cursor = CsvCursor.open(dataPath)) {
+                cursor.nextRow();
+                scan(cursor);
+            }
+        }
+        stamp(attrs);
+    }
+
+    private void stamp(BasicFileAttributes attrs) {
+        fileKey = attrs.fileKey();
+        size = attrs.size();
+        modified = attrs.lastModifiedTime();
+    }
+
+    private void scan(CsvCursor cursor) throws IOException {
+        while (cursor.nextRow()) {
+            long offset = cursor.rowOffset();
+            int code;
+            int repUserCode;
+            try {
+                code = cursor.nextInt();
+                cursor.skipField();
+                cursor.skipField();
+                repUserCode = cursor.nextInt();
+            } catch (NumberFormatException | IllegalStateException e) {
+                continue;
+            }
+            add(code, repUserCode, offset);
+        }
+    }
+
+    private void add(int code, int repUserCode, long offset) {
+        if (codes.add(code)) {
+            byRepUserCode.computeIfAbsent(repUserCode, k -> new Postings()).add(offset);
+        }
+    }
+
+    /**
+     * CSVを書き直すときに、書き出した行のコード・担当ユーザーコード・位置を順に集めます。
+     */
+    static final class Rows {
+        private int[] codes = new int[16];
+        private int[] repUserCodes = new int[16];
+        private long[] offsets = new long[16];
+        private int size;
+
+        void add(int code, int repUserCode, long offset) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+                repUserCodes = Arrays.copyOf(repUserCodes, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            codes[size] = code;
+            repUserCodes[size] = repUserCode;
+            offsets[size] = offset;
+            size++;
+        }
+    }
+
+    /**
+     * 行の位置を追加順に保持する可変長のlong配列です。
+     */
+    private static final class Postings {
+        private long[] offsets = new long[4];
+        private int size;
+
+        void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(offsets, size);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * タスクCSVの内容を列ごとのプリミティブ配列で保持する表です。
+ * コード・ステータス・担当ユーザーコードはそれぞれintの配列に、
+ * タスク名はUTF-8のバイト列のまま1つの配列に詰めて保持するため、1件あたりのオブジェクトはありません。
+ * タスクコードから行番号へはボクシングしないハッシュ表で引きます。
+ * 1件あたりのメモリは列の16バイトとハッシュ表の15〜30バイトにタスク名のバイト数を足した程度で、1,000万件でも数百MBに収まります。
+ * 既存の呼び出し側には、参照した行だけTaskを生成するリストのビューを提供します。
+ * 作成後は変更しないため、複数のスレッドから同期せずに参照できます。
+ */
+public final class TaskTable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int size;
+    private final int[] codes;
+    private final int[] statuses;
+    private final int[] repUserCodes;
+    /** 各行のタスク名の開始位置。末尾に全体のバイト数を加えた size + 1 件 */
+    private final int[] nameStarts;
+    private final byte[] names;
+    private final IntIntMap rows;
+
+    private TaskTable(int size, int[] codes, int[] statuses, int[] repUserCodes, int[] nameStarts,
+            byte[] names) {
+        this.size = size;
+        this.codes = codes;
+        this.statuses = statuses;
+        this.repUserCodes = repUserCodes;
+        this.nameStarts = nameStarts;
+        this.names = names;
+        this.rows = new IntIntMap(size);
+        for (int row = 0; row < size; row++) {
+            // 同じコードが複数行ある場合は、findByCodeと同じく先頭の行を指す
+            rows.putIfAbsent(codes[row], row);
+        }
+    }
+
+    /**
+     * チャンクごとに読み込んだ行を、チャンクの順に連結した表を作成します。
+     *
+     * @param chunks ファイル上の順序で並んだチャンクごとの行
+     * @return 表
+     */
+    static TaskTable of(List<Builder> chunks) {
+        long totalSize = 0;
+        long totalNameBytes = 0;
+        for (Builder chunk : chunks) {
+            totalSize += chunk.size;
+            totalNameBytes += chunk.nameSize;
+        }
+        if (totalSize > Integer.MAX_VALUE - 8 || totalNameBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("表に収まらない件数です");
+        }
+        int size = (int) totalSize;
+        int nameBytes = (int) totalNameBytes;
+        int[] codes = new int[size];
+        int[] statuses = new int[size];
+        int[] repUserCodes = new int[size];
+        int[] nameStarts = new int[size + 1];
+        byte[] names = new byte[nameBytes];
+        int row = 0;
+        int nameOffset = 0;
+        for (Builder chunk : chunks) {
+            System.arraycopy(chunk.codes, 0, codes, row, chunk.size);
+            System.arraycopy(chunk.statuses, 0, statuses, row, chunk.size);
+            System.arraycopy(chunk.repUserCodes, 0, repUserCodes, row, chunk.size);
+            System.arraycopy(chunk.names, 0, names, nameOffset, chunk.nameSize);
+            for (int i = 0; i < chunk.size; i++) {
+                nameStarts[row + i] = nameOffset + chunk.nameStarts[i];
+            }
+            row += chunk.size;
+            nameOffset += chunk.nameSize;
+        }
+        nameStarts[size] = nameOffset;
+        return new TaskTable(size, codes, statuses, repUserCodes, nameStarts, names);
+    }
+
+    /**
+     * 行数を取得します。
+     *
+     * @return 行数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * タスクコードに対応する行番号を取得します。
+     *
+     * @param code タスクコード
+     * @return 行番号、存在しない場合は-1
+     */
+    public int rowOf(int code) {
+        return rows.get(code, -1);
+    }
+
+    public int code(int row) {
+        return codes[checkRow(row)];
+    }
+
+    public int status(int row) {
+        return statuses[checkRow(row)];
+    }
+
+    public int repUserCode(int row) {
+        return repUserCodes[checkRow(row)];
+    }
+
+    /**
+     * 行のタスク名をデコードして取得します。
+     *
+     * @param row 行番号
+     * @return タスク名
+     */
+    public String name(int row) {
+        int start = nameStarts[checkRow(row)];
+        return new String(names, start, nameStarts[row + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 行からTaskを生成します。
+     *
+     * @param row      行番号
+     * @param repUsers 担当ユーザーコードから担当者を解決する処理
+     * @return タスク
+     */
+    public Task task(int row, IntFunction<User> repUsers) {
+        return new Task(code(row), name(row), status(row), repUsers.apply(repUserCodes[row]));
+    }
+
+    /**
+     * コードを基にタスクを取得します。
+     *
+     * @param code     タスクコード
+     * @param repUsers 担当ユーザーコードから担当者を解決する処理
+     * @return タスク、存在しない場合はnull
+     */
+    public Task findByCode(int code, IntFunction<User> repUsers) {
+        int row = rowOf(code);
+        return row >= 0 ? task(row, repUsers) : null;
+    }
+
+    /**
+     * 表をTaskのリストとして参照するビューを取得します。
+     * Taskは要素を取得するたびに生成するため、参照しない行のTaskは作られません。
+     * 同じ要素を2回取得すると別のインスタンスになり、リストは変更できません。
+     *
+     * @param repUsers 担当ユーザーコードから担当者を解決する処理
+     * @return 変更できないリスト
+     */
+    public List<Task> asList(IntFunction<User> repUsers) {
+        return new TaskListView(repUsers);
+    }
+
+    /**
+     * 配列とハッシュ表が使っているおおよそのバイト数を取得します。
+     *
+     * @return バイト数
+     */
+    public long footprintBytes() {
+        long columns = (long) (codes.length + statuses.length + repUserCodes.length) * Integer.BYTES
+                + (long) nameStarts.length * Integer.BYTES + names.length;
+        // キー・値・使用中フラグ
+        long index = (long) rows.slots() * (Integer.BYTES * 2 + 1);
+        return columns + index;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("行番号が範囲外です: " + row);
+        }
+        return row;
+    }
+
+    private final class TaskListView extends AbstractList<Task> implements RandomAccess {
+        private final IntFunction<User> repUsers;
+
+        private TaskListView(IntFunction<User> repUsers) {
+            this.repUsers = repUsers;
+        }
+
+        @Override
+        public Task get(int index) {
+            return task(index, repUsers);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * 1つのチャンクの行を列ごとの配列へ読み込みます。
+     * 配列は足りなくなるたびに2倍に広げます。
+     */
+    static final class Builder {
+        private int size;
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private int[] statuses = new int[INITIAL_CAPACITY];
+        private int[] repUserCodes = new int[INITIAL_CAPACITY];
+        private int[] nameStarts = new int[INITIAL_CAPACITY];
+        private byte[] names = new byte[INITIAL_CAPACITY * 16];
+        private int nameSize;
+
+        /**
+         * カーソルが指している範囲の全ての行を読み込みます。
+         *
+         * @param cursor 行の手前を指しているカーソル
+         * @return 読み込んだ行
+         * @throws IOException 読み込みに失敗した場合
+         */
+        static Builder read(CsvCursor cursor) throws IOException {
+            Builder builder = new Builder();
+            while (cursor.nextRow()) {
+                builder.add(cursor);
+            }
+            return builder;
+        }
+
+        /**
+         * カーソルが指している行を追加します。
+         *
+         * @param cursor 行の先頭の列を指しているカーソル
+         */
+        void add(CsvCursor cursor) {
+            int code = cursor.nextInt();
+            int row = nextRow();
+            int length = cursor.fieldLength();
+            ensureNameCapacity(length);
+            nameStarts[row] = nameSize;
+            nameSize += cursor.nextBytes(names, nameSize);
+            statuses[row] = cursor.nextInt();
+            repUserCodes[row] = cursor.nextInt();
+            codes[row] = code;
+            size++;
+        }
+
+        /**
+         * 行を追加します。
+         *
+         * @param code        タスクコード
+         * @param name        タスク名
+         * @param status      ステータス
+         * @param repUserCode 担当ユーザーコード
+         */
+        void add(int code, String name, int status, int repUserCode) {
+            int row = nextRow();
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            ensureNameCapacity(bytes.length);
+            nameStarts[row] = nameSize;
+            System.arraycopy(bytes, 0, names, nameSize, bytes.length);
+            nameSize += bytes.length;
+            statuses[row] = status;
+            repUserCodes[row] = repUserCode;
+            codes[row] = code;
+            size++;
+        }
+
+        /**
+         * これまでに追加した行で表を作成します。
+         *
+         * @return 表
+         */
+        TaskTable build() {
+            return TaskTable.of(List.of(this));
+        }
+
+        private int nextRow() {
+            if (size == codes.length) {
+                int capacity = codes.length * 2;
+                codes = Arrays.copyOf(codes, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                repUserCodes = Arrays.copyOf(repUserCodes, capacity);
+                nameStarts = Arrays.copyOf(nameStarts, capacity);
+            }
+            return size;
+        }
+
+        private void ensureNameCapacity(int length) {
+            if (nameSize + length > names.length) {
+                long capacity = Math.max((long) names.length * 2, (long) nameSize + length);
+                if (capacity > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("タスク名の合計が大きすぎます");
+                }
+                names = Arrays.copyOf(names, (int) capacity);
+            }
+        }
+    }
+}
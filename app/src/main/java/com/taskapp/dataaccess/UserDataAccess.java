@@ -1,8 +1,13 @@
 package com.taskapp.dataaccess;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
 
 import com.taskapp.exception.AppException;
 import com.taskapp.model.User;
@@ -10,8 +15,14 @@ import com.taskapp.model.User;
 public class UserDataAccess {
     private final String filePath;
 
+    private final UserIndex userIndex;
+
+    private final PasswordHasher passwordHasher;
+
     public UserDataAccess() {
         filePath = "app/src/main/resources/users.csv";
+        userIndex = UserIndex.of(filePath);
+        passwordHasher = new PasswordHasher();
     }
 
     /**
@@ -21,37 +32,29 @@ public class UserDataAccess {
      */
     public UserDataAccess(String filePath) {
         this.filePath = filePath;
+        this.userIndex = UserIndex.of(filePath);
+        this.passwordHasher = new PasswordHasher();
     }
 
     /**
      * メールアドレスとパスワードを基にユーザーデータを探します。
+     * メールアドレスは索引から1回のハッシュ参照で探すため、ユーザー数によらず一定の時間で見つかります。
+     * パスワードは保存されているハッシュと照合します。
+     * {@link #migratePasswords()}の前の平文で保存されている場合も、ハッシュと同じ時間をかけて比較します。
      * 
+     * @see com.taskapp.dataaccess.UserIndex#findByEmail(String)
+     * @see com.taskapp.dataaccess.PasswordHasher#verify(String, String)
      * @param email    メールアドレス
      * @param password パスワード
      * @return 見つかったユーザー
      */
     public User findByEmailAndPassword(String email, String password) throws AppException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",", -1);
-                if (parts.length < 4)
-                    continue;
-
-                String code = parts[0].trim();
-                String name = parts[1].trim();
-                String mail = parts[2].trim();
-                String pass = parts[3].trim();
-
-                if (mail.equals(email) && pass.equals(password)) {
-                    return new User(Integer.parseInt(code), name, email, pass);
-                }
-            }
-
-        } catch (IOException e) {
-            e.printStackTrace();
-
+        User user = userIndex.findByEmail(email);
+        if (user == null) {
+            // 存在しないメールアドレスでも照合と同じ時間をかけ、応答時間から登録の有無がわからないようにする
+            passwordHasher.verifyDummy(password);
+        } else if (passwordHasher.verify(password, user.getPassword())) {
+            return user;
         }
         throw new AppException("既に登録されているメールアドレス、パスワードを入力してください");
     }
@@ -59,23 +62,84 @@ public class UserDataAccess {
     /**
      * コードを基にユーザーデータを取得します。
      * 
+     * @see com.taskapp.dataaccess.UserIndex#findByCode(int)
      * @param code 取得するユーザーのコード
      * @return 見つかったユーザー
      */
     public User findByCode(int code) throws AppException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",", -1);
-                int userCode = Integer.parseInt(parts[0].trim());
-                if (userCode == code) {
-                    return new User(userCode, parts[1].trim(), parts[2].trim(), parts[3].trim());
+        User user = userIndex.findByCode(code);
+        if (user == null) {
+            throw new AppException("担当者が見つかりません");
+        }
+        return user;
+    }
+
+    /**
+     * 現在のユーザー全員を、コードから引ける表として取得します。
+     * 一覧取得や一括登録のように多くの行で担当者を解決する場合に、行ごとにファイルの更新を確認せずに済みます。
+     * 取得した時点のユーザーの表のため、後からユーザーCSVが更新されても変わりません。
+     *
+     * @see com.taskapp.dataaccess.UserIndex#byCode()
+     * @return コードをキーとしたユーザーの変更できない表
+     */
+    public Map<Integer, User> usersByCode() {
+        return Collections.unmodifiableMap(userIndex.byCode());
+    }
+
+    /**
+     * 平文で保存されているパスワードをハッシュに置き換えます。
+     * ユーザーCSVは一時ファイルに書き出してから置き換えるため、途中で失敗しても元の内容は残ります。
+     * 全てのパスワードがハッシュであれば書き込みは行いません。
+     *
+     * @see com.taskapp.dataaccess.PasswordHasher#hash(String)
+     * @return ハッシュに置き換えたユーザーの数
+     */
+    public int migratePasswords() {
+        Path path = Paths.get(filePath);
+        CsvFileLock fileLock = CsvFileLock.of(path);
+        fileLock.lockWrite();
+        try {
+            String[] lines = Files.readString(path, StandardCharsets.UTF_8).split("\n", -1);
+            int migrated = 0;
+            // 先頭行はヘッダー
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i];
+                String newline = line.endsWith("\r") ? "\r" : "";
+                String[] values = line.substring(0, line.length() - newline.length()).split(",", -1);
+                if (values.length < 4 || PasswordHasher.isHashed(values[3])) {
+                    continue;
                 }
+                values[3] = passwordHasher.hash(values[3]);
+                lines[i] = String.join(",", values) + newline;
+                migrated++;
             }
+            if (migrated == 0) {
+                return 0;
+            }
+
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.writeString(tmp, String.join("\n", lines), StandardCharsets.UTF_8);
+            fileLock.lockPublish();
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                fileLock.unlockPublish();
+            }
+            return migrated;
         } catch (IOException e) {
             e.printStackTrace();
+            return 0;
+        } finally {
+            fileLock.unlockWrite();
         }
-        throw new AppException("担当者が見つかりません");
+    }
+
+    /**
+     * ユーザーCSVのロックの取得を待った時間の集計を取得します。
+     *
+     * @return 待ち時間の集計
+     */
+    public LockWaitStats lockWaitStats() {
+        return userIndex.lockWaitStats();
     }
 }
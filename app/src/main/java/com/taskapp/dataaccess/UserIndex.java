@@ -0,0 +1,186 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.taskapp.model.User;
+
+/**
+ * ユーザーCSVの内容をメモリ上に保持するインデックスです。
+ * コードとメールアドレスの両方から1回のハッシュ参照でユーザーを取得できます。
+ * メールアドレスは前後の空白を除いて小文字にそろえた値をキーにするため、大文字・小文字の違いがあっても同じユーザーを返します。
+ * ファイルの更新日時かサイズが変わった場合のみCSVを読み直し、
+ * 同じファイルに対するインデックスは全てのUserDataAccessで共有されます。
+ * 同じコードのユーザーは常に同じインスタンスを返すため、タスクの一覧で何件のタスクが同じ担当者を参照しても
+ * ユーザーとその名前・メールアドレス・パスワードの文字列はヒープ上に1つしかありません。
+ * 読み直した場合も内容が変わっていないユーザーは前回のインスタンスを使い続けます。
+ */
+final class UserIndex {
+    private static final Map<Path, UserIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    private final CsvFileLock fileLock;
+
+    private Snapshot snapshot;
+
+    private UserIndex(Path path) {
+        this.path = path;
+        this.fileLock = CsvFileLock.of(path);
+    }
+
+    /**
+     * 指定したファイルに対応するインデックスを取得します。
+     *
+     * @param filePath ユーザーCSVのパス
+     * @return 共有されたインデックス
+     */
+    static UserIndex of(String filePath) {
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        return INDEXES.computeIfAbsent(path, UserIndex::new);
+    }
+
+    /**
+     * コードを基にユーザーを取得します。
+     *
+     * @param code ユーザーコード
+     * @return 見つかったユーザー、存在しない場合はnull
+     */
+    User findByCode(int code) {
+        return current().byCode.get(code);
+    }
+
+    /**
+     * 現在のファイル内容に対応する、コードからユーザーへの表を取得します。
+     * 表は読み直しのたびに作り直し、作成後は変更しないため、複数のスレッドから同期せずに参照できます。
+     *
+     * @return コードをキーとしたユーザーの表。変更しないでください
+     */
+    Map<Integer, User> byCode() {
+        return current().byCode;
+    }
+
+    /**
+     * メールアドレスを基にユーザーを取得します。
+     *
+     * @see #normalizeEmail(String)
+     * @param email メールアドレス
+     * @return 見つかったユーザー、存在しない場合はnull
+     */
+    User findByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        return current().byEmail.get(normalizeEmail(email));
+    }
+
+    /**
+     * 索引のキーにするため、メールアドレスの前後の空白を除いて小文字にそろえます。
+     *
+     * @param email メールアドレス
+     * @return そろえたメールアドレス
+     */
+    static String normalizeEmail(String email) {
+        return email.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private synchronized Snapshot current() {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            e.printStackTrace();
+            snapshot = null;
+            return Snapshot.EMPTY;
+        }
+        if (snapshot == null || !snapshot.isCurrent(attrs)) {
+            snapshot = load(attrs, snapshot != null ? snapshot.byCode : Map.of());
+        }
+        return snapshot;
+    }
+
+    /**
+     * CSVを読み込み、新しいスナップショットを作成します。
+     *
+     * @param previous 前回のスナップショットのユーザー。内容が同じユーザーはこのインスタンスを使い続けます
+     */
+    private Snapshot load(BasicFileAttributes attrs, Map<Integer, User> previous) {
+        Map<Integer, User> byCode = new HashMap<>();
+        Map<String, User> byEmail = new HashMap<>();
+        try (CsvCursor cursor = open()) {
+            cursor.nextRow();
+            while (cursor.nextRow()) {
+                if (cursor.fieldCount() < 4)
+                    continue;
+
+                User user = canonical(previous, new User(cursor.nextInt(), cursor.nextString(),
+                        cursor.nextString(), cursor.nextString()));
+                // 重複している場合は先頭の行を優先する(従来の線形探索と同じ結果)
+                byCode.putIfAbsent(user.getCode(), user);
+                byEmail.putIfAbsent(normalizeEmail(user.getEmail()), user);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Snapshot.EMPTY;
+        }
+        return new Snapshot(attrs.lastModifiedTime(), attrs.size(), byCode, byEmail);
+    }
+
+    private static User canonical(Map<Integer, User> previous, User user) {
+        User known = previous.get(user.getCode());
+        if (known != null && known.getName().equals(user.getName()) && known.getEmail().equals(user.getEmail())
+                && known.getPassword().equals(user.getPassword())) {
+            return known;
+        }
+        return user;
+    }
+
+    /**
+     * 書き込み中の内容を読まないよう、他のプロセスの書き込みと重ならないようにCSVを開きます。
+     */
+    private CsvCursor open() throws IOException {
+        fileLock.lockRead();
+        try {
+            return CsvCursor.open(path);
+        } finally {
+            fileLock.unlockRead();
+        }
+    }
+
+    /**
+     * ユーザーCSVのロックの取得を待った時間の集計を取得します。
+     *
+     * @return 待ち時間の集計
+     */
+    LockWaitStats lockWaitStats() {
+        return fileLock.waitStats();
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(null, -1, Map.of(), Map.of());
+
+        final FileTime modified;
+        final long size;
+        final Map<Integer, User> byCode;
+        final Map<String, User> byEmail;
+
+        Snapshot(FileTime modified, long size, Map<Integer, User> byCode, Map<String, User> byEmail) {
+            this.modified = modified;
+            this.size = size;
+            this.byCode = byCode;
+            this.byEmail = byEmail;
+        }
+
+        boolean isCurrent(BasicFileAttributes attrs) {
+            return attrs.lastModifiedTime().equals(modified) && attrs.size() == size;
+        }
+    }
+}
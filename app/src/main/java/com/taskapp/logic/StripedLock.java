@@ -0,0 +1,64 @@
+package com.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * キーごとに排他するためのロックを、決まった数のロックに振り分けて共有します。
+ * 同じキーは必ず同じロックになるため同じタスクへの操作は直列化され、
+ * 異なるキーは多くの場合に別のロックになるため並行して処理できます。
+ * キーの数だけロックを作らずに済むため、タスクが増えてもメモリは増えません。
+ */
+final class StripedLock {
+    private final ReentrantLock[] stripes;
+
+    /**
+     * ロックを作成します。
+     *
+     * @param stripes ロックの数。2のべき乗に切り上げます
+     */
+    StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * キーに対応するロックを取得します。
+     *
+     * @param key キー
+     * @return ロック
+     */
+    ReentrantLock forKey(int key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * 複数のキーに対応するロックを、重複を除いて決まった順序で取得します。
+     * 複数のロックを取得する処理が常にこの順序でロックすれば、互いに待ち合ってデッドロックすることはありません。
+     *
+     * @param keys キー
+     * @return ロックを取得する順に並んだロック
+     */
+    List<ReentrantLock> forKeys(Collection<Integer> keys) {
+        BitSet indexes = new BitSet(stripes.length);
+        for (int key : keys) {
+            indexes.set(indexOf(key));
+        }
+        List<ReentrantLock> locks = new ArrayList<>(indexes.cardinality());
+        for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            locks.add(stripes[i]);
+        }
+        return locks;
+    }
+
+    private int indexOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,220 @@
+package com.taskapp.logic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import com.taskapp.dataaccess.TaskTable;
+import com.taskapp.model.TaskCounts;
+
+/**
+ * ステータスごと・担当者ごとのタスクの件数を数えておく集計です。
+ * 最初に件数を問い合わせたときにタスクの表を1回走査して数え、以降は登録やステータスの変更のたびに差分だけを反映するため、
+ * 件数の取得でCSVを読み込むことも、担当者を解決することもありません。
+ * 差分の反映はCSVへの書き込みと合わせて{@link #beginUpdate()}と{@link #endUpdate()}で囲みます。
+ * 数え直しは囲まれた更新が終わるのを待ってから行うため、書き込み済みで差分をまだ反映していない変更を二重に数えることはありません。
+ * このプロセスの{@link TaskLogic}を通した変更だけを反映するため、他のプロセスがCSVを変更した場合は{@link #invalidate()}で数え直してください。
+ */
+final class TaskCounters {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, LongAdder> byStatus = new ConcurrentHashMap<>();
+    /** 担当ユーザーコードを上位32ビット、ステータスを下位32ビットに詰めたキーごとの件数 */
+    private final Map<Long, LongAdder> byRepUser = new ConcurrentHashMap<>();
+    private volatile boolean built;
+
+    /**
+     * 差分の反映を始めます。CSVへの書き込みの前に呼び出し、差分を反映したら必ず{@link #endUpdate()}を呼び出してください。
+     * 複数のスレッドが同時に反映できます。
+     */
+    void beginUpdate() {
+        lock.readLock().lock();
+    }
+
+    /**
+     * 差分の反映を終えます。
+     */
+    void endUpdate() {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * 件数を数え終えているかを取得します。数え終えていない間は差分を反映する必要はありません。
+     *
+     * @return 数え終えていればtrue
+     */
+    boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * 登録したタスクを数えます。まだ数えていない場合は何もしません。
+     *
+     * @param repUserCode 担当ユーザーコード
+     * @param status      ステータス
+     */
+    void added(int repUserCode, int status) {
+        if (built) {
+            add(repUserCode, status, 1);
+        }
+    }
+
+    /**
+     * ステータスを変更したタスクを、変更前のステータスから変更後のステータスへ数え直します。まだ数えていない場合は何もしません。
+     *
+     * @param repUserCode 担当ユーザーコード
+     * @param from        変更前のステータス
+     * @param to          変更後のステータス
+     */
+    void statusChanged(int repUserCode, int from, int to) {
+        if (built) {
+            add(repUserCode, from, -1);
+            add(repUserCode, to, 1);
+        }
+    }
+
+    /**
+     * ステータスのタスクの件数を取得します。
+     *
+     * @param status ステータス
+     * @param source まだ数えていない場合に走査するタスクの表
+     * @return 件数
+     */
+    long count(int status, Supplier<TaskTable> source) {
+        ensureBuilt(source);
+        LongAdder count = byStatus.get(status);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * 担当者のステータスのタスクの件数を取得します。
+     *
+     * @param repUserCode 担当ユーザーコード
+     * @param status      ステータス
+     * @param source      まだ数えていない場合に走査するタスクの表
+     * @return 件数
+     */
+    long count(int repUserCode, int status, Supplier<TaskTable> source) {
+        ensureBuilt(source);
+        LongAdder count = byRepUser.get(key(repUserCode, status));
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * 全ての件数を取得します。反映中の更新が終わるのを待つため、途中まで反映された一括の変更を含むことはありません。
+     *
+     * @param source まだ数えていない場合に走査するタスクの表
+     * @return 件数
+     */
+    TaskCounts snapshot(Supplier<TaskTable> source) {
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                build(source.get());
+            }
+            return toCounts();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 差分を積み重ねた件数が、タスクの表を数え直した件数と一致するかを確認します。
+     *
+     * @param source 数え直すタスクの表
+     * @return 一致すればtrue
+     */
+    boolean verify(Supplier<TaskTable> source) {
+        lock.writeLock().lock();
+        try {
+            TaskTable table = source.get();
+            if (!built) {
+                build(table);
+                return true;
+            }
+            return toCounts().equals(countAll(table));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 件数を破棄し、次に問い合わせたときに数え直すようにします。
+     */
+    void invalidate() {
+        lock.writeLock().lock();
+        try {
+            built = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * タスクの表の全ての行を数えた件数を作成します。
+     *
+     * @param table タスクの表
+     * @return 件数
+     */
+    static TaskCounts countAll(TaskTable table) {
+        Map<Integer, Long> statuses = new HashMap<>();
+        Map<Integer, Map<Integer, Long>> repUsers = new HashMap<>();
+        for (int row = 0; row < table.size(); row++) {
+            int status = table.status(row);
+            statuses.merge(status, 1L, Long::sum);
+            repUsers.computeIfAbsent(table.repUserCode(row), code -> new HashMap<>()).merge(status, 1L, Long::sum);
+        }
+        return new TaskCounts(statuses, repUsers);
+    }
+
+    private void ensureBuilt(Supplier<TaskTable> source) {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                build(source.get());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 書き込みのロックを取った状態で、タスクの表から件数を数えます。
+     */
+    private void build(TaskTable table) {
+        byStatus.clear();
+        byRepUser.clear();
+        for (int row = 0; row < table.size(); row++) {
+            add(table.repUserCode(row), table.status(row), 1);
+        }
+        built = true;
+    }
+
+    private void add(int repUserCode, int status, int delta) {
+        byStatus.computeIfAbsent(status, s -> new LongAdder()).add(delta);
+        byRepUser.computeIfAbsent(key(repUserCode, status), k -> new LongAdder()).add(delta);
+    }
+
+    private TaskCounts toCounts() {
+        Map<Integer, Long> statuses = new HashMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : byStatus.entrySet()) {
+            statuses.put(entry.getKey(), entry.getValue().sum());
+        }
+        Map<Integer, Map<Integer, Long>> repUsers = new HashMap<>();
+        for (Map.Entry<Long, LongAdder> entry : byRepUser.entrySet()) {
+            long key = entry.getKey();
+            repUsers.computeIfAbsent((int) (key >> 32), code -> new HashMap<>())
+                    .put((int) key, entry.getValue().sum());
+        }
+        return new TaskCounts(statuses, repUsers);
+    }
+
+    private static long key(int repUserCode, int status) {
+        return ((long) repUserCode << 32) | (status & 0xffffffffL);
+    }
+}
@@ -0,0 +1,124 @@
+package com.taskapp.logic;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * タスク一覧の行を組み立てて出力します。
+ * 行は使い回すバッファに組み立て、自動フラッシュしない大きなバッファ付きのPrintWriterに書き込むため、
+ * 出力先への書き込みは1行ごとではなくバッファが溜まるごとにまとめて行われます。
+ * 最後に必ず{@link #flush()}か{@link #close()}を呼び出してください。
+ */
+final class TaskListRenderer implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] STATUS_LABELS = { "未着手", "着手中", "完了" };
+    private static final String UNKNOWN_STATUS = "不明";
+
+    private final PrintWriter out;
+    private final boolean closeOut;
+    private final StringBuilder row = new StringBuilder(128);
+    private long rendered;
+
+    private TaskListRenderer(Writer writer, boolean closeOut) {
+        this.out = new PrintWriter(new BufferedWriter(writer, BUFFER_SIZE), false);
+        this.closeOut = closeOut;
+    }
+
+    /**
+     * 標準出力に書き込むレンダラーを作成します。閉じても標準出力は閉じません。
+     *
+     * @return レンダラー
+     */
+    static TaskListRenderer toConsole() {
+        return new TaskListRenderer(new OutputStreamWriter(System.out, System.out.charset()), false);
+    }
+
+    /**
+     * ファイルに書き込むレンダラーを作成します。ファイルが既にある場合は上書きします。
+     *
+     * @param file 書き込むファイル
+     * @return レンダラー
+     * @throws IOException ファイルを開けなかった場合
+     */
+    static TaskListRenderer toFile(Path file) throws IOException {
+        return new TaskListRenderer(Files.newBufferedWriter(file, StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * タスクを1行出力します。
+     *
+     * @param number    行の先頭に付ける番号
+     * @param task      出力するタスク
+     * @param loginUser ログインユーザー
+     */
+    void render(int number, Task task, User loginUser) {
+        row.setLength(0);
+        row.append(number).append(". タスク名: ").append(task.getName()).append(", 担当者名: ");
+        if (task.getRepUser().getCode() == loginUser.getCode()) {
+            row.append("あなた");
+        } else {
+            row.append(task.getRepUser().getName());
+        }
+        row.append("が担当しています, ステータス: ").append(statusLabel(task.getStatus())).append('\n');
+        out.append(row);
+        rendered++;
+    }
+
+    /**
+     * 任意の1行を出力します。
+     *
+     * @param line 出力する行
+     */
+    void println(String line) {
+        out.append(line).append('\n');
+    }
+
+    /**
+     * これまでに出力したタスクの件数を取得します。
+     *
+     * @return 件数
+     */
+    long renderedCount() {
+        return rendered;
+    }
+
+    /**
+     * 出力先への書き込みに失敗したかを判定します。
+     *
+     * @return 失敗していればtrue
+     */
+    boolean checkError() {
+        return out.checkError();
+    }
+
+    /**
+     * バッファに溜まっている内容を出力先に書き出します。
+     */
+    void flush() {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        if (closeOut) {
+            out.close();
+        } else {
+            out.flush();
+        }
+    }
+
+    private static String statusLabel(int status) {
+        return status >= 0 && status < STATUS_LABELS.length ? STATUS_LABELS[status] : UNKNOWN_STATUS;
+    }
+}
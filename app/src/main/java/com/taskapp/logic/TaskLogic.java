@@ -1,20 +1,44 @@
 package com.taskapp.logic;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 import com.taskapp.dataaccess.LogDataAccess;
 import com.taskapp.dataaccess.TaskDataAccess;
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
+import com.taskapp.metrics.Metrics;
+import com.taskapp.metrics.OperationMetrics;
+import com.taskapp.model.BatchResult;
 import com.taskapp.model.Log;
+import com.taskapp.model.NewTask;
 import com.taskapp.model.Task;
+import com.taskapp.model.TaskCounts;
+import com.taskapp.model.TaskPage;
 import com.taskapp.model.User;
 
 public class TaskLogic {
+    /** タスクごとのステータス変更を直列化するロックの数 */
+    private static final int TASK_LOCK_STRIPES = 64;
+
+    private static final OperationMetrics CHANGE_STATUS = Metrics.operation("TaskLogic.changeStatus");
+
     private final TaskDataAccess taskDataAccess;
     private final LogDataAccess logDataAccess;
     private final UserDataAccess userDataAccess;
+    private final StripedLock taskLocks = new StripedLock(TASK_LOCK_STRIPES);
+    private final TaskCounters taskCounters = new TaskCounters();
 
     public TaskLogic() {
         taskDataAccess = new TaskDataAccess();
@@ -42,32 +66,117 @@ public class TaskLogic {
      * @param loginUser ログインユーザー
      */
     public void showAll(User loginUser) {
-        TaskDataAccess tda = new TaskDataAccess();
-        List<Task> tasks = tda.findAll();
+        List<Task> tasks = taskDataAccess.findAll();
+
+        try (TaskListRenderer renderer = TaskListRenderer.toConsole()) {
+            for (int i = 0; i < tasks.size(); i++) {
+                renderer.render(i + 1, tasks.get(i), loginUser);
+            }
+        }
+    }
+
+    /**
+     * ログインユーザーが担当するタスクを表示します。
+     * 担当ユーザーコードの索引から該当する行だけを読み込むため、他のユーザーのタスクは読み込みません。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findByRepUserCode(int)
+     * @param loginUser ログインユーザー
+     * @return 表示したタスクのリスト
+     */
+    public List<Task> showMine(User loginUser) {
+        List<Task> tasks = taskDataAccess.findByRepUserCode(loginUser.getCode());
+
+        try (TaskListRenderer renderer = TaskListRenderer.toConsole()) {
+            for (int i = 0; i < tasks.size(); i++) {
+                renderer.render(i + 1, tasks.get(i), loginUser);
+            }
+            if (tasks.isEmpty()) {
+                renderer.println("担当しているタスクはありません。");
+            }
+        }
+        return tasks;
+    }
 
-        for (int i = 0; i < tasks.size(); i++) {
-            Task task = tasks.get(i);
-            String statusStr = switch (task.getStatus()) {
-                case 0 -> "未着手";
-                case 1 -> "着手中";
-                case 2 -> "完了";
-                default -> "不明";
-            };
+    /**
+     * 指定したページのタスクを表示します。
+     * ページ番号が最後のページを超えている場合は最後のページを表示します。
+     *
+     * @see #findPage(int, int)
+     * @param loginUser ログインユーザー
+     * @param page      0から始まるページ番号
+     * @param pageSize  1ページあたりの件数
+     * @return 表示したページ
+     * @throws UncheckedIOException タスクCSVの読み込みに失敗した場合
+     */
+    public TaskPage showPage(User loginUser, int page, int pageSize) {
+        TaskPage taskPage = findPage(page, pageSize);
 
-            String assigned;
-            if (task.getRepUser().getCode() == loginUser.getCode()) {
-                assigned = "あなたが担当しています";
-            } else {
-                assigned = task.getRepUser().getName() + "が担当しています";
+        List<Task> tasks = taskPage.getTasks();
+        int first = taskPage.getPage() * pageSize;
+        try (TaskListRenderer renderer = TaskListRenderer.toConsole()) {
+            for (int i = 0; i < tasks.size(); i++) {
+                renderer.render(first + i + 1, tasks.get(i), loginUser);
             }
-            System.out.println((i + 1) + ". タスク名: " + task.getName() + ", 担当者名: " + assigned + ", ステータス: " + statusStr);
+            renderer.println("ページ " + (taskPage.getPage() + 1) + "/" + taskPage.getTotalPages()
+                    + " (全" + taskPage.getTotalCount() + "件)");
         }
+        return taskPage;
+    }
 
+    /**
+     * 指定したページのタスクを取得します。
+     * ページ番号が最後のページを超えている場合は最後のページを、負の場合は最初のページを取得します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findPage(int, int)
+     * @param page     0から始まるページ番号
+     * @param pageSize 1ページあたりの件数
+     * @return 取得したページ
+     * @throws UncheckedIOException タスクCSVの読み込みに失敗した場合
+     */
+    public TaskPage findPage(int page, int pageSize) {
+        TaskPage taskPage = taskDataAccess.findPage(Math.max(0, page), pageSize);
+        if (taskPage.getPage() >= taskPage.getTotalPages()) {
+            taskPage = taskDataAccess.findPage(taskPage.getTotalPages() - 1, pageSize);
+        }
+        return taskPage;
+    }
+
+    /**
+     * 全てのタスクを一覧と同じ形式でファイルに書き出します。
+     * タスクは1行ずつ読み込みながら書き出すため、件数が多くても全件をメモリに載せることはありません。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#stream()
+     * @param loginUser ログインユーザー
+     * @param file      書き出すファイル。既にある場合は上書きします
+     * @return 書き出した件数
+     * @throws AppException ファイルへの書き出しに失敗した場合にスローされます
+     */
+    public long exportAll(User loginUser, Path file) throws AppException {
+        TaskListRenderer renderer;
+        try {
+            renderer = TaskListRenderer.toFile(file);
+        } catch (IOException e) {
+            throw new AppException("ファイルを開けませんでした: " + file);
+        }
+        try (renderer; Stream<Task> tasks = taskDataAccess.stream()) {
+            Iterator<Task> iterator = tasks.iterator();
+            int number = 1;
+            while (iterator.hasNext()) {
+                renderer.render(number++, iterator.next(), loginUser);
+            }
+        }
+        if (renderer.checkError()) {
+            throw new AppException("ファイルへの書き出しに失敗しました: " + file);
+        }
+        return renderer.renderedCount();
     }
 
     /**
      * 新しいタスクを保存します。
+     * タスクコードの重複はメモリ上のタスクコードの集合で確認し、既に使われている場合はCSVにアクセスせずに拒否します。
+     * 同じタスクコードの登録はタスクコードごとのロックで直列化し、確認と保存の間に重複が入り込まないようにします。
      *
+     * @see com.taskapp.dataaccess.TaskDataAccess#existsCode(int)
      * @see com.taskapp.dataaccess.UserDataAccess#findByCode(int)
      * @see com.taskapp.dataaccess.TaskDataAccess#save(com.taskapp.model.Task)
      * @see com.taskapp.dataaccess.LogDataAccess#save(com.taskapp.model.Log)
@@ -75,51 +184,382 @@ public class TaskLogic {
      * @param name        タスク名
      * @param repUserCode 担当ユーザーコード
      * @param loginUser   ログインユーザー
-     * @throws AppException ユーザーコードが存在しない場合にスローされます
+     * @throws AppException タスクコードが既に使われている、ユーザーコードが存在しない、またはタスクCSVへの書き込みに失敗した場合にスローされます
      */
     public void save(int code, String name, int repUserCode,
             User loginUser) throws AppException {
-        UserDataAccess uda = new UserDataAccess();
-        User assignedUser = uda.findByCode(repUserCode);
+        ReentrantLock lock = taskLocks.forKey(code);
+        lock.lock();
+        try {
+            if (taskDataAccess.existsCode(code)) {
+                throw new AppException("既に登録されているタスクコードです。別のタスクコードを入力してください。");
+            }
+            User assignedUser = userDataAccess.findByCode(repUserCode);
 
-        Task task = new Task(code, name, 0, assignedUser);
-        TaskDataAccess tda = new TaskDataAccess();
-        tda.save(task);
+            Task task = new Task(code, name, 0, assignedUser);
+            saveCounted(task);
+
+            Log log = new Log(code, loginUser.getCode(), 0, LocalDate.now());
+            logDataAccess.save(log);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * タスクコードを採番して新しいタスクを保存します。
+     * 採番したコードが手入力で既に使われていた場合は、次のコードを採番し直します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#nextCode()
+     * @see com.taskapp.dataaccess.TaskDataAccess#existsCode(int)
+     * @see com.taskapp.dataaccess.TaskDataAccess#save(com.taskapp.model.Task)
+     * @see com.taskapp.dataaccess.LogDataAccess#save(com.taskapp.model.Log)
+     * @param name        タスク名
+     * @param repUserCode 担当ユーザーコード
+     * @param loginUser   ログインユーザー
+     * @return 採番したタスクコード
+     * @throws AppException ユーザーコードが存在しない、採番に失敗した、またはタスクCSVへの書き込みに失敗した場合にスローされます
+     */
+    public int save(String name, int repUserCode, User loginUser) throws AppException {
+        User assignedUser = userDataAccess.findByCode(repUserCode);
+        while (true) {
+            int code = taskDataAccess.nextCode();
+            ReentrantLock lock = taskLocks.forKey(code);
+            lock.lock();
+            try {
+                if (taskDataAccess.existsCode(code)) {
+                    continue;
+                }
+                Task task = new Task(code, name, 0, assignedUser);
+                saveCounted(task);
 
-        Log log = new Log(code, loginUser.getCode(), 0, LocalDate.now());
-        LogDataAccess lda = new LogDataAccess();
-        lda.save(log);
+                Log log = new Log(code, loginUser.getCode(), 0, LocalDate.now());
+                logDataAccess.save(log);
+                return code;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 複数のタスクをまとめて登録します。
+     * 担当者はユーザーCSVを1回だけ読み込んだユーザーの表で確認し、タスクと作成のログはそれぞれ1回の追記でまとめて保存します。
+     * 登録できない入力があっても残りの入力は登録し、登録できなかった入力は結果に理由とともに記録します。
+     * タスクCSVへの書き込みに失敗した場合は、登録しようとした全ての入力を登録できなかった入力として記録します。
+     * 既に使われているタスクコードは{@link #save(int, String, int, User)}と同じくメモリ上の集合で確認し、
+     * 対象のタスクコードのロックを決まった順序でまとめて取得してから確認と保存を行います。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#existsCode(int)
+     * @see com.taskapp.dataaccess.UserDataAccess#usersByCode()
+     * @see com.taskapp.dataaccess.TaskDataAccess#saveAll(List)
+     * @see com.taskapp.dataaccess.LogDataAccess#saveAll(List)
+     * @param newTasks  登録するタスクの入力
+     * @param loginUser ログインユーザー
+     * @return 登録の結果
+     */
+    public BatchResult saveAll(List<NewTask> newTasks, User loginUser) {
+        BatchResult result = new BatchResult(newTasks.size());
+        Map<Integer, User> users = userDataAccess.usersByCode();
+        Set<Integer> codes = new HashSet<>();
+        List<Task> tasks = new ArrayList<>(newTasks.size());
+        List<Log> logs = new ArrayList<>(newTasks.size());
+        LocalDate date = LocalDate.now();
+        List<Integer> accepted = new ArrayList<>(newTasks.size());
+        Set<Integer> requestedCodes = new HashSet<>();
+        for (NewTask newTask : newTasks) {
+            requestedCodes.add(newTask.getCode());
+        }
+
+        List<ReentrantLock> locks = taskLocks.forKeys(requestedCodes);
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            for (int i = 0; i < newTasks.size(); i++) {
+                NewTask newTask = newTasks.get(i);
+                String name = newTask.getName();
+                User repUser = users.get(newTask.getRepUserCode());
+                if (name == null || name.length() > 10) {
+                    result.reject(i, newTask.getCode(), "タスク名は10文字以内で入力してください");
+                } else if (name.indexOf(',') >= 0 || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0) {
+                    result.reject(i, newTask.getCode(), "タスク名にカンマや改行は使えません");
+                } else if (repUser == null) {
+                    result.reject(i, newTask.getCode(), "存在するユーザーコードを入力してください");
+                } else if (!codes.add(newTask.getCode())) {
+                    result.reject(i, newTask.getCode(), "タスクコードが重複しています");
+                } else if (taskDataAccess.existsCode(newTask.getCode())) {
+                    result.reject(i, newTask.getCode(), "既に登録されているタスクコードです");
+                } else {
+                    tasks.add(new Task(newTask.getCode(), name, 0, repUser));
+                    logs.add(new Log(newTask.getCode(), loginUser.getCode(), 0, date));
+                    accepted.add(i);
+                }
+            }
+
+            boolean saved = false;
+            taskCounters.beginUpdate();
+            try {
+                taskDataAccess.saveAll(tasks);
+                for (Task task : tasks) {
+                    taskCounters.added(task.getRepUser().getCode(), task.getStatus());
+                }
+                saved = true;
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+            } finally {
+                taskCounters.endUpdate();
+            }
+            if (!saved) {
+                // 一部の行だけが書き込まれている可能性があるため、次の問い合わせで数え直す
+                taskCounters.invalidate();
+                for (int i : accepted) {
+                    result.reject(i, newTasks.get(i).getCode(), "タスクの保存に失敗しました");
+                }
+                return result;
+            }
+            logDataAccess.saveAll(logs);
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+        return result;
     }
 
     /**
      * タスクのステータスを変更します。
+     * 同じタスクへの変更はタスクコードごとのロックで直列化し、異なるタスクへの変更は並行して行えます。
+     * ステータスの書き換えは読み込んだときのステータスのままの場合だけ行うため、
+     * 別のプロセスなどから先に変更されていた場合は変更しません。
      *
      * @see com.taskapp.dataaccess.TaskDataAccess#findByCode(int)
-     * @see com.taskapp.dataaccess.TaskDataAccess#update(com.taskapp.model.Task)
+     * @see com.taskapp.dataaccess.TaskDataAccess#compareAndSetStatus(int, int, int)
      * @see com.taskapp.dataaccess.LogDataAccess#save(com.taskapp.model.Log)
      * @param code      タスクコード
      * @param status    新しいステータス
      * @param loginUser ログインユーザー
-     * @throws AppException タスクコードが存在しない、またはステータスが前のステータスより1つ先でない場合にスローされます
+     * @throws AppException タスクコードが存在しない、ステータスが前のステータスより1つ先でない、
+     *                      他のユーザーが先にステータスを変更した、またはタスクCSVへの書き込みに失敗した場合にスローされます
      */
     public void changeStatus(int code, int status,
             User loginUser) throws AppException {
-        TaskDataAccess tda = new TaskDataAccess();
-        Task task = tda.findByCode(code);
+        long start = CHANGE_STATUS.start();
+        ReentrantLock lock = taskLocks.forKey(code);
+        lock.lock();
+        try {
+            Task task = taskDataAccess.findByCode(code);
 
-        int currentStatus = task.getStatus();
+            int currentStatus = task.getStatus();
+
+            if (status != currentStatus + 1) {
+                throw new AppException("ステータスは、前のステータスより1つ先のもののみを選択してください");
+            }
 
-        if (status != currentStatus + 1) {
-            throw new AppException("ステータスは、前のステータスより1つ先のもののみを選択してください");
+            boolean written = false;
+            taskCounters.beginUpdate();
+            try {
+                if (!taskDataAccess.compareAndSetStatus(code, currentStatus, status)) {
+                    throw new AppException("他のユーザーがステータスを変更したため、もう一度やり直してください");
+                }
+                taskCounters.statusChanged(task.getRepUser().getCode(), currentStatus, status);
+                written = true;
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+            } finally {
+                taskCounters.endUpdate();
+            }
+            if (!written) {
+                throw writeFailed("ステータスの変更に失敗しました");
+            }
+
+            LocalDate date = LocalDate.now();
+            Log log = new Log(code, loginUser.getCode(), status, date);
+            logDataAccess.save(log);
+        } catch (AppException e) {
+            CHANGE_STATUS.error();
+            throw e;
+        } finally {
+            lock.unlock();
+            CHANGE_STATUS.record(start);
+        }
+    }
+
+    /**
+     * 複数のタスクのステータスをまとめて変更します。
+     * 現在のステータスはCSVを1回走査して取得し、全ての変更をその時点のステータスに対して確認します。
+     * 確認できた変更はまとめて1回で書き込み、変更のログも1回の追記でまとめて保存します。
+     * 変更できなかったタスクは、入力の順番とタスクコードと理由を結果に記録します。
+     * タスクCSVへの書き込みに失敗した場合は、確認できた変更も全て変更できなかったものとして記録します。
+     * 対象のタスクのロックは決まった順序でまとめて取得するため、{@link #changeStatus(int, int, User)}と同時に呼び出しても
+     * デッドロックすることはありません。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findStatuses(java.util.Set)
+     * @see com.taskapp.dataaccess.TaskDataAccess#compareAndSetStatusAll(Map, Map)
+     * @see com.taskapp.dataaccess.TaskDataAccess#findRepUserCodes(java.util.Set)
+     * @see com.taskapp.dataaccess.LogDataAccess#saveAll(List)
+     * @param changes   タスクコードと新しいステータスの組。結果の入力の順番はこのマップの反復順です
+     * @param loginUser ログインユーザー
+     * @return 変更の結果
+     */
+    public BatchResult changeStatusAll(Map<Integer, Integer> changes, User loginUser) {
+        BatchResult result = new BatchResult(changes.size());
+        List<ReentrantLock> locks = taskLocks.forKeys(changes.keySet());
+        for (ReentrantLock lock : locks) {
+            lock.lock();
         }
+        try {
+            Map<Integer, Integer> current = taskDataAccess.findStatuses(changes.keySet());
+            Map<Integer, Integer> expected = new HashMap<>();
+            Map<Integer, Integer> next = new HashMap<>();
+            String[] reasons = new String[changes.size()];
+            int index = 0;
+            for (Map.Entry<Integer, Integer> change : changes.entrySet()) {
+                int code = change.getKey();
+                Integer currentStatus = current.get(code);
+                if (currentStatus == null) {
+                    reasons[index] = "存在するタスクコードを入力してください。";
+                } else if (change.getValue() != currentStatus + 1) {
+                    reasons[index] = "ステータスは、前のステータスより1つ先のもののみを選択してください";
+                } else {
+                    expected.put(code, currentStatus);
+                    next.put(code, change.getValue());
+                }
+                index++;
+            }
 
-        task.setStatus(status);
-        tda.update(task);
+            Set<Integer> changed = Set.of();
+            boolean countsLost = false;
+            String failure = null;
+            taskCounters.beginUpdate();
+            try {
+                changed = taskDataAccess.compareAndSetStatusAll(expected, next);
+                if (taskCounters.isBuilt() && !changed.isEmpty()) {
+                    Map<Integer, Integer> repUserCodes = taskDataAccess.findRepUserCodes(changed);
+                    for (int code : changed) {
+                        Integer repUserCode = repUserCodes.get(code);
+                        if (repUserCode == null) {
+                            countsLost = true;
+                        } else {
+                            taskCounters.statusChanged(repUserCode, expected.get(code), next.get(code));
+                        }
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                e.printStackTrace();
+                countsLost = true;
+                failure = "ステータスの変更に失敗しました";
+            } finally {
+                taskCounters.endUpdate();
+            }
+            if (countsLost) {
+                // 書き換えた行を読み直せなかった場合や書き込みに失敗した場合は差分を反映できないため、次の問い合わせで数え直す
+                taskCounters.invalidate();
+            }
 
-        LogDataAccess lda = new LogDataAccess();
-        LocalDate date = LocalDate.now();
-        Log log = new Log(code, loginUser.getCode(), status, date);
-        lda.save(log);
+            List<Log> logs = new ArrayList<>(changed.size());
+            LocalDate date = LocalDate.now();
+            index = 0;
+            for (Map.Entry<Integer, Integer> change : changes.entrySet()) {
+                int code = change.getKey();
+                if (changed.contains(code)) {
+                    logs.add(new Log(code, loginUser.getCode(), change.getValue(), date));
+                } else {
+                    String reason = reasons[index];
+                    if (reason == null) {
+                        reason = failure != null ? failure
+                                : "他のユーザーがステータスを変更したため、もう一度やり直してください";
+                    }
+                    result.reject(index, code, reason);
+                }
+                index++;
+            }
+            logDataAccess.saveAll(logs);
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * ステータスのタスクの件数を取得します。
+     * 件数は最初の問い合わせでタスクの表を1回数え、以降は登録とステータスの変更のたびに差分を反映したものを返します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findTable()
+     * @param status ステータス
+     * @return 件数
+     */
+    public long countTasks(int status) {
+        return taskCounters.count(status, taskDataAccess::findTable);
+    }
+
+    /**
+     * 担当者のステータスのタスクの件数を取得します。
+     *
+     * @see #countTasks(int)
+     * @param repUserCode 担当ユーザーコード
+     * @param status      ステータス
+     * @return 件数
+     */
+    public long countTasks(int repUserCode, int status) {
+        return taskCounters.count(repUserCode, status, taskDataAccess::findTable);
+    }
+
+    /**
+     * ステータスごと・担当者ごとの全ての件数を取得します。
+     *
+     * @see #countTasks(int)
+     * @return 件数
+     */
+    public TaskCounts countTasks() {
+        return taskCounters.snapshot(taskDataAccess::findTable);
+    }
+
+    /**
+     * 差分を反映してきた件数が、CSVを数え直した件数と一致するかを確認します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findTable()
+     * @return 一致すればtrue
+     */
+    public boolean verifyTaskCounts() {
+        return taskCounters.verify(taskDataAccess::findTable);
+    }
+
+    /**
+     * 件数を破棄し、次の問い合わせでCSVから数え直すようにします。
+     * 他のプロセスがタスクCSVを変更した場合に呼び出します。
+     */
+    public void refreshTaskCounts() {
+        taskCounters.invalidate();
+    }
+
+    /**
+     * タスクを保存し、保存できた場合だけ件数に反映します。
+     */
+    private void saveCounted(Task task) throws AppException {
+        taskCounters.beginUpdate();
+        try {
+            taskDataAccess.save(task);
+            taskCounters.added(task.getRepUser().getCode(), task.getStatus());
+            return;
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+        } finally {
+            taskCounters.endUpdate();
+        }
+        throw writeFailed("タスクの保存に失敗しました");
+    }
+
+    /**
+     * タスクCSVへの書き込みに失敗した場合の例外を作成します。
+     * 書き込みが途中まで反映されている可能性があるため、件数を破棄して次の問い合わせで数え直すようにします。
+     * 件数の更新中は数え直しを待たせるため、{@link TaskCounters#endUpdate()}の後に呼び出してください。
+     */
+    private AppException writeFailed(String message) {
+        taskCounters.invalidate();
+        return new AppException(message);
     }
 
     /**
@@ -1,11 +1,31 @@
 package com.taskapp.logic;
 
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
+import com.taskapp.metrics.Metrics;
+import com.taskapp.metrics.OperationMetrics;
 import com.taskapp.model.User;
 
 public class UserLogic {
+    /** 最後に利用してからセッションが無効になるまでの時間 */
+    static final Duration SESSION_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final int TOKEN_SIZE = 24;
+    private static final int PURGE_INTERVAL = 1024;
+
+    private static final OperationMetrics LOGIN = Metrics.operation("UserLogic.login");
+
     private final UserDataAccess userDataAccess;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger startedSessions = new AtomicInteger();
+    private final SecureRandom random = new SecureRandom();
 
     public UserLogic() {
         userDataAccess = new UserDataAccess();
@@ -29,7 +49,82 @@ public class UserLogic {
      * @throws AppException メールアドレスとパスワードが一致するユーザーが存在しない場合にスローされます
      */
     public User login(String email, String password) throws AppException {
-        UserDataAccess uda = new UserDataAccess();
-        return uda.findByEmailAndPassword(email, password);
+        long start = LOGIN.start();
+        try {
+            return userDataAccess.findByEmailAndPassword(email, password);
+        } catch (AppException e) {
+            LOGIN.error();
+            throw e;
+        } finally {
+            LOGIN.record(start);
+        }
+    }
+
+    /**
+     * ログインしたユーザーのセッションを開始し、以降のリクエストで使うトークンを発行します。
+     * セッションはメモリ上に保持するため、トークンからのユーザーの取得ではCSVにもパスワードの照合にもアクセスしません。
+     *
+     * @param user ログインしたユーザー
+     * @return セッションのトークン
+     */
+    public String startSession(User user) {
+        if (startedSessions.incrementAndGet() % PURGE_INTERVAL == 0) {
+            long now = System.nanoTime();
+            sessions.values().removeIf(session -> session.isExpired(now));
+        }
+        byte[] bytes = new byte[TOKEN_SIZE];
+        random.nextBytes(bytes);
+        String token = HexFormat.of().formatHex(bytes);
+        sessions.put(token, new Session(user, System.nanoTime()));
+        return token;
+    }
+
+    /**
+     * トークンからセッションのユーザーを取得します。
+     * 取得できた場合はセッションの有効期限を延長します。
+     *
+     * @param token セッションのトークン
+     * @return ログインしているユーザー、トークンが無効か期限切れの場合はnull
+     */
+    public User findSession(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (session.isExpired(now)) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session.user;
+    }
+
+    /**
+     * セッションを終了します。
+     *
+     * @param token セッションのトークン
+     */
+    public void endSession(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    private static final class Session {
+        private final User user;
+        private volatile long lastAccess;
+
+        private Session(User user, long lastAccess) {
+            this.user = user;
+            this.lastAccess = lastAccess;
+        }
+
+        private boolean isExpired(long now) {
+            return now - lastAccess > SESSION_TIMEOUT.toNanos();
+        }
     }
-}
\ No newline at end of file
+}
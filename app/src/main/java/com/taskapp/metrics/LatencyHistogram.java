@@ -0,0 +1,99 @@
+package com.taskapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 処理時間をマイクロ秒単位の対数線形のバケットで数えるヒストグラムです。
+ * 2のべき乗ごとの区間をさらに16等分したバケットに数えるため、値を全て保持せずに
+ * 誤差1/16以内でパーセンタイルを求められます。
+ * 記録はロックを取らずに複数のスレッドから同時に行えます。
+ */
+public final class LatencyHistogram {
+    /** 2のべき乗の区間を何等分するか(2のべき乗) */
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+
+    /**
+     * 処理時間を1件記録します。
+     *
+     * @param nanos 処理時間(ナノ秒)
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+    }
+
+    /**
+     * 記録した件数を取得します。
+     *
+     * @return 件数
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 処理時間の平均を取得します。
+     *
+     * @return 平均(マイクロ秒)。記録がなければ0
+     */
+    public long meanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / n;
+    }
+
+    /**
+     * 指定した割合の記録がその値以下に収まる処理時間を取得します。
+     * バケットの上限を返すため、実際の値より最大1/16だけ大きくなることがあります。
+     *
+     * @param fraction 0より大きく1以下の割合。p99であれば0.99
+     * @return 処理時間(マイクロ秒)。記録がなければ0
+     */
+    public long percentileMicros(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,107 @@
+package com.taskapp.metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 操作ごとの計測値をまとめて保持する、プロセスで1つの登録簿です。
+ * 計測する側は操作名で{@link #operation(String)}を1回だけ呼び出し、得た計測値をstatic finalのフィールドに保持してください。
+ * {@code taskapp.metrics}に{@code false}を指定して起動した場合は、全ての計測値が何も記録しません。
+ */
+public final class Metrics {
+    /** JMXに登録する名前 */
+    public static final String OBJECT_NAME = "com.taskapp:type=Metrics";
+
+    private static final boolean ENABLED = !"false".equals(System.getProperty("taskapp.metrics"));
+
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * 操作の計測値を取得します。同じ名前の計測値は共有します。
+     *
+     * @param name 操作名。「クラス名.メソッド名」の形式にします
+     * @return 計測値
+     */
+    public static OperationMetrics operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, n -> new OperationMetrics(n, ENABLED));
+    }
+
+    /**
+     * 全ての操作の現時点の計測値を、操作名の順に取得します。
+     *
+     * @return 操作名と計測値の組
+     */
+    public static Map<String, OperationStats> snapshot() {
+        Map<String, OperationStats> stats = new TreeMap<>();
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            stats.put(metrics.getName(), metrics.snapshot());
+        }
+        return stats;
+    }
+
+    /**
+     * 1回以上呼び出された操作の計測値を、1行ずつの文字列で取得します。
+     *
+     * @return 計測値の一覧
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        for (OperationStats stats : snapshot().values()) {
+            if (stats.getCount() > 0) {
+                report.append(stats).append('\n');
+            }
+        }
+        return report.toString();
+    }
+
+    /**
+     * 計測値をJMXのプラットフォームMBeanサーバーに登録します。既に登録されている場合は何もしません。
+     *
+     * @see com.taskapp.metrics.MetricsMXBean
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 計測値を一定の間隔で出力し始めます。
+     *
+     * @param interval 出力の間隔
+     * @param out      出力先
+     * @return 出力を止めるためのレポーター
+     */
+    public static MetricsReporter startReporter(Duration interval, PrintStream out) {
+        return MetricsReporter.start(interval, out);
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        @Override
+        public Map<String, OperationStats> getOperations() {
+            return snapshot();
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.taskapp.metrics;
+
+import java.util.Map;
+
+/**
+ * 計測値をJMXで公開するためのインターフェースです。
+ * JConsoleなどから「com.taskapp:type=Metrics」として参照できます。
+ *
+ * @see com.taskapp.metrics.Metrics#registerMBean()
+ */
+public interface MetricsMXBean {
+    /**
+     * 操作ごとの計測値を取得します。
+     *
+     * @return 操作名と計測値の組
+     */
+    Map<String, OperationStats> getOperations();
+
+    /**
+     * 操作ごとの計測値を1行ずつの文字列で取得します。
+     *
+     * @return 計測値の一覧
+     */
+    String getReport();
+}
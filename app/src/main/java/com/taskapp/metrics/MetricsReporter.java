@@ -0,0 +1,61 @@
+package com.taskapp.metrics;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 計測値を一定の間隔でテキストとして出力します。
+ * 出力はデーモンスレッドで行うため、レポーターを止め忘れてもプロセスの終了を妨げません。
+ *
+ * @see com.taskapp.metrics.Metrics#startReporter(Duration, PrintStream)
+ */
+public final class MetricsReporter implements AutoCloseable {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ScheduledExecutorService scheduler;
+    private final PrintStream out;
+
+    private MetricsReporter(PrintStream out) {
+        this.out = out;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    static MetricsReporter start(Duration interval, PrintStream out) {
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("出力の間隔は正の値を指定してください: " + interval);
+        }
+        MetricsReporter reporter = new MetricsReporter(out);
+        long millis = interval.toMillis();
+        reporter.scheduler.scheduleAtFixedRate(reporter::dump, millis, millis, TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+
+    /**
+     * 現時点の計測値を出力します。
+     */
+    public void dump() {
+        String report = Metrics.report();
+        synchronized (out) {
+            out.println("[metrics " + LocalDateTime.now().format(TIME_FORMAT) + "]");
+            out.print(report);
+            out.flush();
+        }
+    }
+
+    /**
+     * 出力を止めます。
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,109 @@
+package com.taskapp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1つの操作の呼び出し回数・処理時間・読み書きした量を数える計測値です。
+ * 全ての値はLongAdderとロックを取らないヒストグラムで数えるため、複数のスレッドから同時に記録しても待ち合わせません。
+ * 計測を無効にしている場合、記録は何もしません。
+ *
+ * <pre>
+ * long start = FIND_ALL.start();
+ * try {
+ *     ...
+ * } finally {
+ *     FIND_ALL.record(start);
+ * }
+ * </pre>
+ */
+public final class OperationMetrics {
+    private final String name;
+    private final boolean enabled;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsScanned = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    OperationMetrics(String name, boolean enabled) {
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * 処理の開始時刻を取得します。
+     *
+     * @return {@link #record(long)}に渡す開始時刻(ナノ秒)。計測が無効の場合は0
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 処理を1回呼び出したことを、開始時刻からの経過時間とともに記録します。
+     *
+     * @param startNanos {@link #start()}で取得した開始時刻
+     */
+    public void record(long startNanos) {
+        if (enabled) {
+            latency.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * 処理が失敗したことを記録します。呼び出し回数と処理時間は{@link #record(long)}で別に記録してください。
+     */
+    public void error() {
+        if (enabled) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 処理で読み込んだ行数を加えます。
+     *
+     * @param rows 行数
+     */
+    public void addRowsScanned(long rows) {
+        if (enabled) {
+            rowsScanned.add(rows);
+        }
+    }
+
+    /**
+     * 処理で読み込んだバイト数を加えます。
+     *
+     * @param bytes バイト数
+     */
+    public void addBytesRead(long bytes) {
+        if (enabled) {
+            bytesRead.add(bytes);
+        }
+    }
+
+    /**
+     * 処理で書き込んだバイト数を加えます。
+     *
+     * @param bytes バイト数
+     */
+    public void addBytesWritten(long bytes) {
+        if (enabled) {
+            bytesWritten.add(bytes);
+        }
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * 現時点の値を取得します。
+     *
+     * @return 計測値の写し
+     */
+    public OperationStats snapshot() {
+        return new OperationStats(name, latency.count(), errors.sum(), latency.meanMicros(),
+                latency.percentileMicros(0.50), latency.percentileMicros(0.90), latency.percentileMicros(0.99),
+                rowsScanned.sum(), bytesRead.sum(), bytesWritten.sum());
+    }
+}
@@ -0,0 +1,112 @@
+package com.taskapp.metrics;
+
+/**
+ * 1つの操作の計測値の写しです。
+ * 取得した時点の値を保持し、後から変化することはありません。
+ * JMXではこのクラスのgetterがそのまま属性の項目になります。
+ *
+ * @see com.taskapp.metrics.OperationMetrics#snapshot()
+ */
+public final class OperationStats {
+    private final String name;
+    private final long count;
+    private final long errors;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long rowsScanned;
+    private final long bytesRead;
+    private final long bytesWritten;
+
+    public OperationStats(String name, long count, long errors, long meanMicros, long p50Micros, long p90Micros,
+            long p99Micros, long rowsScanned, long bytesRead, long bytesWritten) {
+        this.name = name;
+        this.count = count;
+        this.errors = errors;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.rowsScanned = rowsScanned;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 呼び出し回数を取得します。
+     *
+     * @return 呼び出し回数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 失敗した回数を取得します。
+     *
+     * @return 失敗した回数
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * 読み込んだ行数の合計を取得します。
+     *
+     * @return 行数
+     */
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    /**
+     * 読み込んだバイト数の合計を取得します。
+     *
+     * @return バイト数
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * 書き込んだバイト数の合計を取得します。
+     *
+     * @return バイト数
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public String toString() {
+        return name + " count=" + count + " errors=" + errors
+                + " mean=" + formatMillis(meanMicros) + " p50=" + formatMillis(p50Micros)
+                + " p90=" + formatMillis(p90Micros) + " p99=" + formatMillis(p99Micros)
+                + " rows=" + rowsScanned + " read=" + bytesRead + "B written=" + bytesWritten + "B";
+    }
+
+    private static String formatMillis(long micros) {
+        return String.format("%.2fms", micros / 1000.0);
+    }
+}
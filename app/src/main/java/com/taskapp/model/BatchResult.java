@@ -0,0 +1,71 @@
+package com.taskapp.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一括処理の結果です。処理できなかった入力を、入力の位置と理由とともに保持します。
+ */
+public class BatchResult {
+    private int total;
+    private List<Rejection> rejections = new ArrayList<>();
+
+    public BatchResult(int total) {
+        this.total = total;
+    }
+
+    /**
+     * 処理できなかった入力を記録します。
+     *
+     * @param index  入力のリスト上の位置(0から)
+     * @param code   入力のタスクコード
+     * @param reason 処理できなかった理由
+     */
+    public void reject(int index, int code, String reason) {
+        rejections.add(new Rejection(index, code, reason));
+    }
+
+    public int getTotal() {
+        return this.total;
+    }
+
+    public int getSucceededCount() {
+        return this.total - this.rejections.size();
+    }
+
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(this.rejections);
+    }
+
+    public boolean hasRejections() {
+        return !this.rejections.isEmpty();
+    }
+
+    /**
+     * 処理できなかった1件の入力です。
+     */
+    public static class Rejection {
+        private int index;
+        private int code;
+        private String reason;
+
+        public Rejection(int index, int code, String reason) {
+            this.index = index;
+            this.code = code;
+            this.reason = reason;
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public int getCode() {
+            return this.code;
+        }
+
+        public String getReason() {
+            return this.reason;
+        }
+    }
+}
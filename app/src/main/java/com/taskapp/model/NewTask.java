@@ -0,0 +1,28 @@
+package com.taskapp.model;
+
+/**
+ * 一括登録で受け付ける、まだ保存していないタスクの入力です。
+ */
+public class NewTask {
+    private int code;
+    private String name;
+    private int repUserCode;
+
+    public NewTask(int code, String name, int repUserCode) {
+        this.code = code;
+        this.name = name;
+        this.repUserCode = repUserCode;
+    }
+
+    public int getCode() {
+        return this.code;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getRepUserCode() {
+        return this.repUserCode;
+    }
+}
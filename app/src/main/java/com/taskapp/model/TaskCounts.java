@@ -0,0 +1,130 @@
+package com.taskapp.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ステータスごと・担当者ごとのタスクの件数です。
+ * 件数が0の組は保持しないため、同じ件数であれば作成した経路によらず等しくなります。
+ */
+public class TaskCounts {
+    private final Map<Integer, Long> byStatus;
+    private final Map<Integer, Map<Integer, Long>> byRepUser;
+
+    /**
+     * 件数を作成します。
+     *
+     * @param byStatus  ステータスと件数の組
+     * @param byRepUser 担当ユーザーコードと、その担当者のステータスごとの件数の組
+     */
+    public TaskCounts(Map<Integer, Long> byStatus, Map<Integer, Map<Integer, Long>> byRepUser) {
+        this.byStatus = withoutZero(byStatus);
+        Map<Integer, Map<Integer, Long>> repUsers = new HashMap<>();
+        for (Map.Entry<Integer, Map<Integer, Long>> entry : byRepUser.entrySet()) {
+            Map<Integer, Long> counts = withoutZero(entry.getValue());
+            if (!counts.isEmpty()) {
+                repUsers.put(entry.getKey(), counts);
+            }
+        }
+        this.byRepUser = Collections.unmodifiableMap(repUsers);
+    }
+
+    /**
+     * 全てのタスクの件数を取得します。
+     *
+     * @return 件数
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : byStatus.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * ステータスのタスクの件数を取得します。
+     *
+     * @param status ステータス
+     * @return 件数
+     */
+    public long getCount(int status) {
+        return byStatus.getOrDefault(status, 0L);
+    }
+
+    /**
+     * 担当者のステータスのタスクの件数を取得します。
+     *
+     * @param repUserCode 担当ユーザーコード
+     * @param status      ステータス
+     * @return 件数
+     */
+    public long getCount(int repUserCode, int status) {
+        return byRepUser.getOrDefault(repUserCode, Map.of()).getOrDefault(status, 0L);
+    }
+
+    /**
+     * 担当者の全てのタスクの件数を取得します。
+     *
+     * @param repUserCode 担当ユーザーコード
+     * @return 件数
+     */
+    public long getRepUserTotal(int repUserCode) {
+        long total = 0;
+        for (long count : byRepUser.getOrDefault(repUserCode, Map.of()).values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public Map<Integer, Long> getByStatus() {
+        return this.byStatus;
+    }
+
+    /**
+     * タスクを1件以上担当しているユーザーのコードを取得します。
+     *
+     * @return 担当ユーザーコード
+     */
+    public Set<Integer> getRepUserCodes() {
+        return this.byRepUser.keySet();
+    }
+
+    private static Map<Integer, Long> withoutZero(Map<Integer, Long> counts) {
+        Map<Integer, Long> result = new HashMap<>();
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            if (entry.getValue() != 0) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + byStatus.hashCode();
+		result = prime * result + byRepUser.hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		TaskCounts other = (TaskCounts) obj;
+		return byStatus.equals(other.byStatus) && byRepUser.equals(other.byRepUser);
+	}
+
+    @Override
+    public String toString() {
+        return "TaskCounts{byStatus=" + byStatus + ", byRepUser=" + byRepUser + "}";
+    }
+}
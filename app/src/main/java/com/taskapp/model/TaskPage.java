@@ -0,0 +1,50 @@
+package com.taskapp.model;
+
+import java.util.List;
+
+public class TaskPage {
+    private List<Task> tasks;
+    private int page;
+    private int pageSize;
+    private long totalCount;
+
+    public TaskPage(List<Task> tasks, int page, int pageSize, long totalCount) {
+        this.tasks = tasks;
+        this.page = page;
+        this.pageSize = pageSize;
+        this.totalCount = totalCount;
+    }
+
+    public List<Task> getTasks() {
+        return this.tasks;
+    }
+
+    /**
+     * 0から始まるページ番号を取得します。
+     *
+     * @return ページ番号
+     */
+    public int getPage() {
+        return this.page;
+    }
+
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+
+    public int getTotalPages() {
+        return (int) Math.max(1, (totalCount + pageSize - 1) / pageSize);
+    }
+
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+
+    public boolean hasNext() {
+        return page + 1 < getTotalPages();
+    }
+}
@@ -1,10 +1,13 @@
 package com.taskapp.model;
 
+/**
+ * ユーザーです。作成後は変更できないため、同じユーザーのインスタンスを複数のタスクやスレッドで共有できます。
+ */
 public class User {
-    private int code;
-    private String name;
-    private String email;
-    private String password;
+    private final int code;
+    private final String name;
+    private final String email;
+    private final String password;
 
     public User(int code, String name, String email, String password) {
         this.code = code;
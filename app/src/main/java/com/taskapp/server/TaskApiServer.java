@@ -0,0 +1,457 @@
+package com.taskapp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.metrics.LatencyHistogram;
+import com.taskapp.model.Task;
+import com.taskapp.model.TaskCounts;
+import com.taskapp.model.TaskPage;
+import com.taskapp.model.User;
+
+/**
+ * TaskLogicとUserLogicをHTTPで公開するAPIサーバーです。
+ * リクエストは1件ごとに仮想スレッドで処理するため、多数のクライアントが同時に接続しても
+ * プラットフォームスレッドを使い切ることはありません。
+ * リクエストの本文はフォーム形式(application/x-www-form-urlencoded)で受け取り、結果はJSONで返します。
+ * <ul>
+ * <li>POST /login: email, passwordでログインし、以降のリクエストに使うトークンを返します</li>
+ * <li>GET /tasks?page=0&amp;size=20: タスクの一覧をページ単位で返します</li>
+ * <li>POST /tasks: code, name, repUserCodeでタスクを登録します。codeを省略した場合は採番します</li>
+ * <li>POST /tasks/status: code, statusでタスクのステータスを変更します</li>
+ * <li>GET /tasks/counts: ステータスごと・担当ユーザーコードごとのタスクの件数を返します</li>
+ * <li>GET /stats: エンドポイントごとの処理時間のp50・p99を返します</li>
+ * </ul>
+ * ログイン以外のAPIには「Authorization: Bearer トークン」ヘッダーが必要です。
+ * トークンはUserLogicのセッションで管理するため、認証のたびにユーザーCSVを読むことはありません。
+ * 待ち受けるアドレスを指定しない場合はループバックアドレスだけで待ち受け、他のマシンからは接続できません。
+ */
+public class TaskApiServer {
+    /** 接続待ちのキューの長さ。多数のクライアントが一斉に接続しても取りこぼさないよう大きめにします */
+    private static final int BACKLOG = 4096;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private final TaskLogic taskLogic;
+    private final UserLogic userLogic;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** パスごとのメソッドと処理の対応。コンストラクタで登録した後は変更しません */
+    private final Map<String, Map<String, Handler>> routes = new HashMap<>();
+    /** エンドポイントごとの処理時間。コンストラクタで登録した後は変更しません */
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+
+    /**
+     * ループバックアドレスで待ち受けるサーバーを作成します。{@link #start()}を呼び出すまでリクエストは受け付けません。
+     *
+     * @param taskLogic タスクの処理
+     * @param userLogic ログインの処理
+     * @param port      待ち受けるポート。0の場合は空いているポートを使います
+     * @throws IOException ポートを開けなかった場合
+     */
+    public TaskApiServer(TaskLogic taskLogic, UserLogic userLogic, int port) throws IOException {
+        this(taskLogic, userLogic, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * 指定したアドレスで待ち受けるサーバーを作成します。{@link #start()}を呼び出すまでリクエストは受け付けません。
+     * 他のマシンから接続させる場合にだけ、ループバック以外のアドレスを指定してください。
+     *
+     * @param taskLogic   タスクの処理
+     * @param userLogic   ログインの処理
+     * @param bindAddress 待ち受けるアドレス
+     * @param port        待ち受けるポート。0の場合は空いているポートを使います
+     * @throws IOException ポートを開けなかった場合
+     */
+    public TaskApiServer(TaskLogic taskLogic, UserLogic userLogic, InetAddress bindAddress, int port)
+            throws IOException {
+        this.taskLogic = taskLogic;
+        this.userLogic = userLogic;
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+
+        route("POST", "/login", this::login);
+        route("GET", "/tasks", this::listTasks);
+        route("POST", "/tasks", this::createTask);
+        route("POST", "/tasks/status", this::changeStatus);
+        route("GET", "/tasks/counts", this::countTasks);
+        route("GET", "/stats", this::stats);
+    }
+
+    /**
+     * リクエストの受け付けを始めます。
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * リクエストの受け付けを止めます。処理中のリクエストは指定した秒数まで完了を待ちます。
+     *
+     * @param delaySeconds 処理中のリクエストを待つ秒数
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.close();
+    }
+
+    /**
+     * 待ち受けているアドレスを取得します。
+     *
+     * @return 待ち受けているアドレス
+     */
+    public InetAddress getAddress() {
+        return server.getAddress().getAddress();
+    }
+
+    /**
+     * 待ち受けているポートを取得します。
+     *
+     * @return ポート番号
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * エンドポイントごとの件数と処理時間のp50・p99を、1行ずつの文字列で取得します。
+     *
+     * @return 処理時間の集計
+     */
+    public String latencyReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            report.append(entry.getKey())
+                    .append(" count=").append(histogram.count())
+                    .append(" mean=").append(formatMillis(histogram.meanMicros()))
+                    .append(" p50=").append(formatMillis(histogram.percentileMicros(0.50)))
+                    .append(" p99=").append(formatMillis(histogram.percentileMicros(0.99)))
+                    .append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * パスとメソッドの組に処理を割り当てます。
+     * 同じパスに複数のメソッドを割り当てられるよう、パスごとの処理の中でメソッドを振り分けます。
+     * 処理時間はメソッドとパスの組ごとに記録します。
+     */
+    private void route(String method, String path, Handler handler) {
+        latencies.put(method + " " + path, new LatencyHistogram());
+        routes.computeIfAbsent(path, p -> {
+            Map<String, Handler> handlers = new HashMap<>();
+            server.createContext(p, exchange -> dispatch(exchange, p, handlers));
+            return handlers;
+        }).put(method, handler);
+    }
+
+    private void dispatch(HttpExchange exchange, String path, Map<String, Handler> handlers) throws IOException {
+        long start = System.nanoTime();
+        String method = exchange.getRequestMethod();
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().equals(path)) {
+                send(exchange, 404, error("見つかりません"));
+                return;
+            }
+            Handler handler = handlers.get(method);
+            if (handler == null) {
+                send(exchange, 405, error("このメソッドには対応していません"));
+                return;
+            }
+            try {
+                handler.handle(exchange);
+            } catch (AppException | IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                send(exchange, 500, error("サーバーでエラーが発生しました"));
+            }
+        } finally {
+            LatencyHistogram histogram = latencies.get(method + " " + path);
+            if (histogram != null) {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void login(HttpExchange exchange) throws IOException, AppException {
+        Map<String, String> form = readForm(exchange);
+        User user = userLogic.login(required(form, "email"), required(form, "password"));
+
+        String token = userLogic.startSession(user);
+
+        send(exchange, 200, "{\"token\":" + quote(token) + ",\"user\":" + userJson(user) + "}");
+    }
+
+    private void listTasks(HttpExchange exchange) throws IOException, AppException {
+        if (authenticate(exchange) == null) {
+            return;
+        }
+        Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+        int page = intParam(query, "page", 0);
+        int size = intParam(query, "size", DEFAULT_PAGE_SIZE);
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new AppException("sizeは1以上" + MAX_PAGE_SIZE + "以下で指定してください");
+        }
+
+        TaskPage taskPage = taskLogic.findPage(page, size);
+        StringBuilder json = new StringBuilder(128 + taskPage.getTasks().size() * 96);
+        json.append("{\"page\":").append(taskPage.getPage())
+                .append(",\"pageSize\":").append(taskPage.getPageSize())
+                .append(",\"totalPages\":").append(taskPage.getTotalPages())
+                .append(",\"totalCount\":").append(taskPage.getTotalCount())
+                .append(",\"tasks\":[");
+        List<Task> tasks = taskPage.getTasks();
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"code\":").append(task.getCode())
+                    .append(",\"name\":").append(quote(task.getName()))
+                    .append(",\"status\":").append(task.getStatus())
+                    .append(",\"repUser\":").append(userJson(task.getRepUser()))
+                    .append('}');
+        }
+        json.append("]}");
+        send(exchange, 200, json.toString());
+    }
+
+    private void createTask(HttpExchange exchange) throws IOException, AppException {
+        User loginUser = authenticate(exchange);
+        if (loginUser == null) {
+            return;
+        }
+        Map<String, String> form = readForm(exchange);
+        String name = required(form, "name");
+        int repUserCode = intParam(form, "repUserCode", null);
+        if (name.length() > 10) {
+            throw new AppException("タスク名は10文字以内で入力してください");
+        }
+        if (name.indexOf(',') >= 0 || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0) {
+            throw new AppException("タスク名にカンマや改行は使えません");
+        }
+
+        int code;
+        if (form.get("code") == null || form.get("code").isBlank()) {
+            code = taskLogic.save(name, repUserCode, loginUser);
+        } else {
+            code = intParam(form, "code", null);
+            taskLogic.save(code, name, repUserCode, loginUser);
+        }
+        send(exchange, 201, "{\"code\":" + code + "}");
+    }
+
+    private void changeStatus(HttpExchange exchange) throws IOException, AppException {
+        User loginUser = authenticate(exchange);
+        if (loginUser == null) {
+            return;
+        }
+        Map<String, String> form = readForm(exchange);
+        int code = intParam(form, "code", null);
+        int status = intParam(form, "status", null);
+        if (status != 1 && status != 2) {
+            throw new AppException("ステータスは1・2の中から選択してください");
+        }
+
+        taskLogic.changeStatus(code, status, loginUser);
+        send(exchange, 200, "{\"code\":" + code + ",\"status\":" + status + "}");
+    }
+
+    private void countTasks(HttpExchange exchange) throws IOException {
+        if (authenticate(exchange) == null) {
+            return;
+        }
+        TaskCounts counts = taskLogic.countTasks();
+        StringBuilder json = new StringBuilder(64 + counts.getRepUserCodes().size() * 48);
+        json.append("{\"total\":").append(counts.getTotal())
+                .append(",\"byStatus\":");
+        appendCounts(json, counts.getByStatus());
+        json.append(",\"byRepUser\":{");
+        boolean first = true;
+        for (int repUserCode : new TreeSet<>(counts.getRepUserCodes())) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            Map<Integer, Long> statuses = new HashMap<>();
+            for (int status : counts.getByStatus().keySet()) {
+                statuses.put(status, counts.getCount(repUserCode, status));
+            }
+            json.append(quote(Integer.toString(repUserCode))).append(':');
+            appendCounts(json, statuses);
+        }
+        json.append("}}");
+        send(exchange, 200, json.toString());
+    }
+
+    private static void appendCounts(StringBuilder json, Map<Integer, Long> counts) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<Integer, Long> entry : new TreeMap<>(counts).entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(quote(Integer.toString(entry.getKey()))).append(':').append(entry.getValue());
+        }
+        json.append('}');
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        if (authenticate(exchange) == null) {
+            return;
+        }
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(quote(entry.getKey()))
+                    .append(":{\"count\":").append(histogram.count())
+                    .append(",\"meanMicros\":").append(histogram.meanMicros())
+                    .append(",\"p50Micros\":").append(histogram.percentileMicros(0.50))
+                    .append(",\"p99Micros\":").append(histogram.percentileMicros(0.99))
+                    .append('}');
+        }
+        json.append('}');
+        send(exchange, 200, json.toString());
+    }
+
+    /**
+     * Authorizationヘッダーのトークンからログインユーザーを取得します。
+     * トークンがないか無効な場合は401を返し、nullを返します。
+     */
+    private User authenticate(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        User user = null;
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            user = userLogic.findSession(authorization.substring("Bearer ".length()).trim());
+        }
+        if (user == null) {
+            send(exchange, 401, error("ログインしてください"));
+        }
+        return user;
+    }
+
+    private static Map<String, String> readForm(HttpExchange exchange) throws IOException, AppException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_SIZE + 1);
+            if (body.length > MAX_BODY_SIZE) {
+                throw new AppException("リクエストが大きすぎます");
+            }
+            return parseForm(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> parseForm(String encoded) {
+        Map<String, String> form = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return form;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            form.putIfAbsent(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return form;
+    }
+
+    private static String required(Map<String, String> form, String name) throws AppException {
+        String value = form.get(name);
+        if (value == null || value.isBlank()) {
+            throw new AppException(name + "を指定してください");
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> form, String name, Integer defaultValue) throws AppException {
+        String value = form.get(name);
+        if (value == null || value.isBlank()) {
+            if (defaultValue == null) {
+                throw new AppException(name + "を指定してください");
+            }
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new AppException(name + "は数値で指定してください");
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String userJson(User user) {
+        return "{\"code\":" + user.getCode() + ",\"name\":" + quote(user.getName()) + "}";
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String formatMillis(long micros) {
+        return String.format("%.2fms", micros / 1000.0);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException, AppException;
+    }
+}
@@ -3,26 +3,42 @@ package com.taskapp.ui;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
 import com.taskapp.logic.TaskLogic;
 import com.taskapp.logic.UserLogic;
+import com.taskapp.model.BatchResult;
+import com.taskapp.model.NewTask;
+import com.taskapp.model.TaskPage;
 import com.taskapp.model.User;
 
 public class TaskUI {
+    /** タスク一覧の1ページあたりの件数 */
+    private static final int PAGE_SIZE = 20;
+
     private final BufferedReader reader;
 
     private final UserLogic userLogic;
 
     private final TaskLogic taskLogic;
 
+    private final UserDataAccess userDataAccess;
+
     private User loginUser;
 
     public TaskUI() {
         reader = new BufferedReader(new InputStreamReader(System.in));
         userLogic = new UserLogic();
         taskLogic = new TaskLogic();
+        userDataAccess = new UserDataAccess();
     }
 
     /**
@@ -36,15 +52,18 @@ public class TaskUI {
         this.reader = reader;
         this.userLogic = userLogic;
         this.taskLogic = taskLogic;
+        this.userDataAccess = new UserDataAccess();
     }
 
     /**
      * メニューを表示し、ユーザーの入力に基づいてアクションを実行します。
      *
      * @see #inputLogin()
-     * @see com.taskapp.logic.TaskLogic#showAll(User)
+     * @see #browseTasks(User)
      * @see #selectSubMenu()
      * @see #inputNewInformation()
+     * @see #inputImportFile(User)
+     * @see com.taskapp.logic.TaskLogic#showMine(User)
      */
     public void displayMenu() {
         System.out.println("タスク管理アプリケーションにようこそ!!");
@@ -63,8 +82,8 @@ public class TaskUI {
         boolean flg = true;
         while (flg) {
             try {
-                System.out.println("以下1~3のメニューから好きな選択肢を選んでください。");
-                System.out.println("1. タスク一覧, 2. タスク新規登録, 3. ログアウト");
+                System.out.println("以下1~5のメニューから好きな選択肢を選んでください。");
+                System.out.println("1. タスク一覧, 2. タスク新規登録, 3. ログアウト, 4. CSVからタスクを一括登録, 5. 担当しているタスク一覧");
                 System.out.print("選択肢：");
                 String selectMenu = reader.readLine();
 
@@ -72,8 +91,7 @@ public class TaskUI {
 
                 switch (selectMenu) {
                     case "1":
-                        TaskLogic logic = new TaskLogic();
-                        logic.showAll(user);
+                        browseTasks(user);
 
                         selectSubMenu(user);
                         break;
@@ -88,8 +106,16 @@ public class TaskUI {
                         System.out.println("ログアウトしました。");
                         flg = false;
                         break;
+                    case "4":
+                        inputImportFile(user);
+                        break;
+                    case "5":
+                        if (!taskLogic.showMine(user).isEmpty()) {
+                            selectSubMenu(user);
+                        }
+                        break;
                     default:
-                        System.out.println("選択肢が誤っています。1~3の中から選択してください。");
+                        System.out.println("選択肢が誤っています。1~5の中から選択してください。");
                         break;
                 }
             } catch (IOException e) {
@@ -99,6 +125,120 @@ public class TaskUI {
         }
     }
 
+    /**
+     * タスク一覧をページごとに表示し、ページの移動を受け付けます。
+     * 空のまま入力するとページの移動を終了します。
+     *
+     * @see com.taskapp.logic.TaskLogic#showPage(User, int, int)
+     * @param loginUser ログインユーザー
+     */
+    public void browseTasks(User loginUser) throws IOException {
+        int page = 0;
+        while (true) {
+            TaskPage taskPage;
+            try {
+                taskPage = taskLogic.showPage(loginUser, page, PAGE_SIZE);
+            } catch (UncheckedIOException e) {
+                System.out.println("タスクを読み込めませんでした");
+                return;
+            }
+            System.out.print("n: 次のページ, p: 前のページ, 数字: 指定したページへ移動, e: ファイルへ書き出し, 空のままEnter: 一覧を終了 > ");
+            String input = reader.readLine();
+            System.out.println();
+            if (input == null || input.isBlank()) {
+                return;
+            }
+            input = input.trim();
+            if (input.equals("e")) {
+                inputExportFile(loginUser);
+                page = taskPage.getPage();
+            } else if (input.equals("n") && taskPage.hasNext()) {
+                page = taskPage.getPage() + 1;
+            } else if (input.equals("p") && taskPage.hasPrevious()) {
+                page = taskPage.getPage() - 1;
+            } else if (isNumeric(input) && Integer.parseInt(input) >= 1) {
+                page = Integer.parseInt(input) - 1;
+            } else {
+                System.out.println("移動できるページがありません。");
+                page = taskPage.getPage();
+            }
+        }
+    }
+
+    /**
+     * 読み込むCSVファイル名を受け取り、ファイルの全てのタスクを一括で登録します。
+     * CSVは「タスクコード,タスク名,担当するユーザーのコード」の形式で、1行目が数字で始まらない場合は見出しとして読み飛ばします。
+     * 登録できなかった行は、行番号と理由を表示します。
+     *
+     * @see com.taskapp.logic.TaskLogic#saveAll(List, User)
+     * @param loginUser ログインユーザー
+     */
+    public void inputImportFile(User loginUser) throws IOException {
+        System.out.print("登録するタスクのCSVファイル名を入力してください: ");
+        String fileName = reader.readLine();
+        if (fileName == null || fileName.isBlank()) {
+            System.out.println("ファイル名を入力してください");
+            return;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(fileName.trim()), StandardCharsets.UTF_8);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("ファイルを読み込めませんでした: " + fileName.trim());
+            return;
+        }
+
+        List<NewTask> newTasks = new ArrayList<>(lines.size());
+        List<Integer> lineNumbers = new ArrayList<>(lines.size());
+        int invalid = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || (i == 0 && !Character.isDigit(line.charAt(0)))) {
+                continue;
+            }
+            String[] values = line.split(",", -1);
+            if (values.length != 3 || !isNumeric(values[0].strip()) || !isNumeric(values[2].strip())) {
+                System.out.println((i + 1) + "行目: タスクコード,タスク名,担当するユーザーのコードの形式で入力してください");
+                invalid++;
+                continue;
+            }
+            newTasks.add(new NewTask(Integer.parseInt(values[0].strip()), values[1].strip(),
+                    Integer.parseInt(values[2].strip())));
+            lineNumbers.add(i + 1);
+        }
+
+        BatchResult result = taskLogic.saveAll(newTasks, loginUser);
+        for (BatchResult.Rejection rejection : result.getRejections()) {
+            System.out.println(lineNumbers.get(rejection.getIndex()) + "行目 (タスクコード" + rejection.getCode()
+                    + "): " + rejection.getReason());
+        }
+        System.out.println(result.getSucceededCount() + "件のタスクを登録しました。"
+                + (result.getRejections().size() + invalid > 0
+                        ? "(登録できなかった行: " + (result.getRejections().size() + invalid) + "件)"
+                        : ""));
+    }
+
+    /**
+     * 書き出し先のファイル名を受け取り、全てのタスクを一覧と同じ形式で書き出します。
+     *
+     * @see com.taskapp.logic.TaskLogic#exportAll(User, java.nio.file.Path)
+     * @param loginUser ログインユーザー
+     */
+    public void inputExportFile(User loginUser) throws IOException {
+        System.out.print("書き出すファイル名を入力してください: ");
+        String fileName = reader.readLine();
+        if (fileName == null || fileName.isBlank()) {
+            System.out.println("ファイル名を入力してください");
+            return;
+        }
+        try {
+            long count = taskLogic.exportAll(loginUser, Paths.get(fileName.trim()));
+            System.out.println(count + "件のタスクを" + fileName.trim() + "に書き出しました。");
+        } catch (AppException | InvalidPathException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     /**
      * ユーザーからのログイン情報を受け取り、ログイン処理を行います。
      *
@@ -112,8 +252,7 @@ public class TaskUI {
             System.out.print("パスワードを入力してください: ");
             String password = reader.readLine();
 
-            UserLogic logic = new UserLogic();
-            return logic.login(email, password);
+            return userLogic.login(email, password);
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -124,25 +263,30 @@ public class TaskUI {
 
     /**
      * ユーザーからの新規タスク情報を受け取り、新規タスクを登録します。
+     * タスクコードを空欄にした場合は、コードを採番して登録します。
      *
      * @see #isNumeric(String)
      * @see com.taskapp.logic.TaskLogic#save(int, String, int, User)
+     * @see com.taskapp.logic.TaskLogic#save(String, int, User)
      */
     public void inputNewInformation(User loginUser) throws AppException {
         try {
-            int taskCode;
+            Integer taskCode;
             String taskName;
             int repUserCode;
 
             while (true) {
 
-                System.out.print("タスクコードを入力してください: ");
+                System.out.print("タスクコードを入力してください(空欄で自動採番): ");
                 String taskCodeInput = reader.readLine();
-                if (!isNumeric(taskCodeInput)) {
+                if (taskCodeInput != null && taskCodeInput.isEmpty()) {
+                    taskCode = null;
+                } else if (!isNumeric(taskCodeInput)) {
                     System.out.println("コードは半角の数字で入力してください");
                     continue;
+                } else {
+                    taskCode = Integer.parseInt(taskCodeInput);
                 }
-                taskCode = Integer.parseInt(taskCodeInput);
 
                 System.out.print("タスク名を入力してください: ");
                 taskName = reader.readLine();
@@ -159,9 +303,8 @@ public class TaskUI {
                 }
                 repUserCode = Integer.parseInt(userCodeInput);
 
-                UserDataAccess uda = new UserDataAccess();
                 try {
-                    uda.findByCode(repUserCode);
+                    userDataAccess.findByCode(repUserCode);
                 } catch (AppException e) {
                     System.out.println("存在するユーザーコードを入力してください");
                     continue;
@@ -171,10 +314,13 @@ public class TaskUI {
 
             }
 
-            TaskLogic logic = new TaskLogic();
-            logic.save(taskCode, taskName, repUserCode, loginUser);
-
-            System.out.println(taskName + "の登録が完了しました。");
+            if (taskCode == null) {
+                int code = taskLogic.save(taskName, repUserCode, loginUser);
+                System.out.println(taskName + "の登録が完了しました。(タスクコード: " + code + ")");
+            } else {
+                taskLogic.save(taskCode, taskName, repUserCode, loginUser);
+                System.out.println(taskName + "の登録が完了しました。");
+            }
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -259,8 +405,7 @@ public class TaskUI {
                 throw new AppException("ステータスは1・2の中から選択してください");
             }
 
-            TaskLogic logic = new TaskLogic();
-            logic.changeStatus(taskCode, status, loginUser);
+            taskLogic.changeStatus(taskCode, status, loginUser);
 
             System.out.println("ステータスの変更が完了しました。");
         } catch (AppException e) {
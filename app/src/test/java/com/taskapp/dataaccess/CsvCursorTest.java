@@ -0,0 +1,109 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CsvCursorTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReadsFieldsAndSkipsBlankLines() throws IOException {
+        Path file = write("Code,Name,Status\r\n1, 鈴木一郎 ,2\r\n\r\n\n-3,taskC,0");
+
+        try (CsvCursor cursor = CsvCursor.open(file)) {
+            assertThat(cursor.nextRow()).isTrue();
+
+            assertThat(cursor.nextRow()).isTrue();
+            assertThat(cursor.fieldCount()).isEqualTo(3);
+            assertThat(cursor.nextInt()).isEqualTo(1);
+            assertThat(cursor.nextString()).isEqualTo("鈴木一郎");
+            assertThat(cursor.nextInt()).isEqualTo(2);
+
+            assertThat(cursor.nextRow()).isTrue();
+            assertThat(cursor.nextInt()).isEqualTo(-3);
+            assertThat(cursor.nextString()).isEqualTo("taskC");
+
+            assertThat(cursor.nextRow()).isFalse();
+            assertThat(cursor.nextRow()).isFalse();
+        }
+    }
+
+    @Test
+    public void testReadsDatesAndRowOffsets() throws IOException {
+        Path file = write("Task_Code,Change_Date\n1,2024-01-10\n2,2024-01-11\n");
+
+        try (CsvCursor cursor = CsvCursor.open(file)) {
+            cursor.nextRow();
+            cursor.nextRow();
+            assertThat(cursor.rowOffset()).isEqualTo("Task_Code,Change_Date\n".length());
+            cursor.skipField();
+            assertThat(cursor.nextDate()).isEqualTo(LocalDate.of(2024, 1, 10));
+        }
+    }
+
+    @Test
+    public void testRowsLongerThanBuffer() throws IOException {
+        String longName = "あ".repeat(100_000);
+        Path file = write("Code,Name\n1," + longName + "\n2,b");
+
+        try (CsvCursor cursor = CsvCursor.open(file)) {
+            cursor.nextRow();
+            cursor.nextRow();
+            cursor.skipField();
+            assertThat(cursor.nextString()).isEqualTo(longName);
+            assertThat(cursor.nextRow()).isTrue();
+            assertThat(cursor.nextInt()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testMappedModeSeesAppendedRows() throws IOException {
+        Path file = write("Code,Name\n1,鈴木一郎");
+
+        assertThat(readNames(file, ReadMode.MAPPED)).containsExactly("鈴木一郎");
+
+        Files.write(file, "\n2,鈴木二郎".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        assertThat(readNames(file, ReadMode.MAPPED)).containsExactly("鈴木一郎", "鈴木二郎");
+        assertThat(readNames(file, ReadMode.BUFFERED)).containsExactly("鈴木一郎", "鈴木二郎");
+    }
+
+    @Test
+    public void testInvalidNumber() throws IOException {
+        Path file = write("Code\n12a");
+
+        try (CsvCursor cursor = CsvCursor.open(file)) {
+            cursor.nextRow();
+            cursor.nextRow();
+            assertThatThrownBy(cursor::nextInt).isInstanceOf(NumberFormatException.class);
+        }
+    }
+
+    private List<String> readNames(Path file, ReadMode readMode) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (CsvCursor cursor = CsvCursor.open(file, readMode)) {
+            cursor.nextRow();
+            while (cursor.nextRow()) {
+                cursor.skipField();
+                names.add(cursor.nextString());
+            }
+        }
+        return names;
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(dir.resolve("data.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,48 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.model.Log;
+
+public class LogCsvConverterTest {
+    private static final String TEST_FILE_PATH = "src/test/resources/test_logs.csv";
+
+    @Test
+    public void testRoundTrip(@TempDir Path dir) throws IOException {
+        Path segments = dir.resolve("logs");
+        Path csv = dir.resolve("logs.csv");
+
+        assertThat(LogCsvConverter.toBinary(Paths.get(TEST_FILE_PATH), segments)).isEqualTo(7);
+        assertThat(LogCsvConverter.toCsv(segments, csv)).isEqualTo(7);
+
+        assertThat(Files.readString(csv)).isEqualTo(Files.readString(Paths.get(TEST_FILE_PATH)) + "\n");
+    }
+
+    @Test
+    public void testBinaryLogDataAccess(@TempDir Path dir) throws IOException {
+        Path segments = dir.resolve("logs");
+        LogCsvConverter.toBinary(Paths.get(TEST_FILE_PATH), segments);
+        LogDataAccess logDataAccess = new LogDataAccess(segments.toString(), LogFormat.BINARY);
+
+        logDataAccess.save(new Log(3, 1, 0, LocalDate.of(2024, 2, 1)));
+        assertThat(logDataAccess.findByTaskCode(3)).extracting(Log::getStatus).containsExactly(0, 1, 2, 0);
+
+        logDataAccess.deleteByTaskCode(3);
+        logDataAccess.save(new Log(3, 2, 1, LocalDate.of(2024, 3, 1)));
+        logDataAccess.compact();
+
+        List<Log> logs = logDataAccess.findAll();
+        assertThat(logs).extracting(Log::getTaskCode).containsExactly(1, 2, 4, 4, 3);
+        assertThat(logs.get(4).getChangeDate()).isEqualTo(LocalDate.of(2024, 3, 1));
+    }
+}
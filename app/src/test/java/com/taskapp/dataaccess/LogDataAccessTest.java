@@ -11,6 +11,9 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -59,6 +62,73 @@ public class LogDataAccessTest {
         assertThat(logs).contains(newLog);
     }
 
+    @Test
+    public void testSaveAll() {
+        List<Log> newLogs = List.of(new Log(5, 1, 0, LocalDate.now()), new Log(6, 2, 0, LocalDate.now()));
+
+        logDataAccess.saveAll(newLogs);
+
+        assertThat(readLogsFromFile(TEST_FILE_PATH)).extracting(Log::getTaskCode, Log::getChangeUserCode)
+                .contains(tuple(5, 1), tuple(6, 2));
+    }
+
+    @Test
+    public void testAsyncSave() throws IOException {
+        Log newLog = new Log(9, 1, 1, LocalDate.now());
+
+        try (LogDataAccess asyncLogDataAccess = new LogDataAccess(TEST_FILE_PATH, 16, 4, 10,
+                AsyncLogWriter.Durability.FSYNC)) {
+            for (int i = 0; i < 100; i++) {
+                asyncLogDataAccess.save(newLog);
+            }
+            asyncLogDataAccess.flush();
+
+            List<Log> logs = readLogsFromFile(TEST_FILE_PATH);
+            assertThat(logs).hasSize(107);
+            assertThat(logs.get(106)).isEqualTo(newLog);
+        }
+    }
+
+    @Test
+    public void testAsyncCloseKeepsAcceptedLogs() throws Exception {
+        Queue<Integer> accepted = new ConcurrentLinkedQueue<>();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+
+        LogDataAccess asyncLogDataAccess = new LogDataAccess(TEST_FILE_PATH, 8, 4, 1,
+                AsyncLogWriter.Durability.FLUSH);
+        for (int t = 0; t < 4; t++) {
+            int base = 1000 + t * 100000;
+            Thread thread = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 100000; i++) {
+                    try {
+                        asyncLogDataAccess.save(new Log(base + i, 1, 0, LocalDate.now()));
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                    accepted.add(base + i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        started.await();
+        Thread.sleep(20);
+        asyncLogDataAccess.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 閉じた後に受け付けられたログは無く、受け付けたログは全てファイルに残っている
+        List<Integer> written = readLogsFromFile(TEST_FILE_PATH).stream()
+                .map(Log::getTaskCode)
+                .filter(code -> code >= 1000)
+                .toList();
+        assertThat(accepted).isNotEmpty();
+        assertThat(written).containsExactlyInAnyOrderElementsOf(accepted);
+    }
+
     @Tag("Q5")
     @Test
     public void testFindAll() {
@@ -79,6 +149,7 @@ public class LogDataAccessTest {
         logDataAccess.save(log3);
 
         logDataAccess.deleteByTaskCode(2);
+        logDataAccess.compact();
 
         List<Log> logs = readLogsFromFile(TEST_FILE_PATH);
 
@@ -86,6 +157,56 @@ public class LogDataAccessTest {
         assertThat(logs).doesNotContain(log2);
     }
 
+    @Test
+    public void testFindAllHidesDeletedLogsBeforeCompaction() {
+        Log log1 = new Log(1, 1, 1, LocalDate.now());
+        Log log2 = new Log(2, 2, 2, LocalDate.now());
+
+        logDataAccess.save(log1);
+        logDataAccess.save(log2);
+        logDataAccess.deleteByTaskCode(2);
+
+        Log reused = new Log(2, 3, 0, LocalDate.now());
+        logDataAccess.save(reused);
+
+        // Logのequalsはタスクコードしか比較しないため、変更者のコードで区別する
+        List<Log> logs = logDataAccess.findAll();
+        assertThat(logs).hasSize(8);
+        assertThat(logs).filteredOn(log -> log.getTaskCode() == 2)
+                .extracting(Log::getChangeUserCode)
+                .containsExactly(3);
+
+        logDataAccess.compact();
+        assertThat(readLogsFromFile(TEST_FILE_PATH)).extracting(Log::getTaskCode, Log::getChangeUserCode)
+                .isEqualTo(logs.stream().map(log -> tuple(log.getTaskCode(), log.getChangeUserCode())).toList());
+    }
+
+    @Test
+    public void testFindByTaskCode() {
+        logDataAccess.save(new Log(3, 1, 0, LocalDate.of(2024, 2, 1)));
+
+        List<Log> logs = logDataAccess.findByTaskCode(3);
+
+        assertThat(logs).extracting(Log::getStatus, Log::getChangeDate).containsExactly(
+                tuple(0, LocalDate.of(2024, 1, 10)),
+                tuple(1, LocalDate.of(2024, 1, 11)),
+                tuple(2, LocalDate.of(2024, 1, 12)),
+                tuple(0, LocalDate.of(2024, 2, 1)));
+        assertThat(logDataAccess.findByTaskCode(99)).isEmpty();
+    }
+
+    @Test
+    public void testFindByDateRange() {
+        logDataAccess.save(new Log(5, 1, 0, LocalDate.of(2024, 1, 11)));
+
+        List<Log> logs = logDataAccess.findByDateRange(LocalDate.of(2024, 1, 11), LocalDate.of(2024, 1, 12));
+
+        assertThat(logs).extracting(Log::getTaskCode, Log::getChangeDate).containsExactly(
+                tuple(3, LocalDate.of(2024, 1, 11)),
+                tuple(3, LocalDate.of(2024, 1, 12)),
+                tuple(5, LocalDate.of(2024, 1, 11)));
+    }
+
     private List<Log> readLogsFromFile(String filePath) {
         List<Log> logs = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
@@ -0,0 +1,65 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelCsvLoaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLoadsAllRowsInFileOrder() throws IOException {
+        int rows = 200_000;
+        Path file = dir.resolve("tasks.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Code,Name,Status,Rep_User_Code");
+            for (int i = 1; i <= rows; i++) {
+                // 行の長さと改行コードを混ぜ、チャンクの境界が行の途中に来るようにする
+                writer.write(i % 2 == 0 ? "\r\n" : "\n");
+                writer.write(i + ",タスク" + "あ".repeat(i % 7) + "," + i % 3 + ",1");
+            }
+        }
+        assertThat(Files.size(file)).isGreaterThan(ParallelCsvLoader.MIN_CHUNK_SIZE * 4);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Integer> codes = ParallelCsvLoader.load(channel, cursor -> {
+                int code = cursor.nextInt();
+                assertThat(cursor.nextString()).startsWith("タスク");
+                return code % 10 == 0 ? null : code;
+            }, pool);
+
+            assertThat(codes).hasSize(rows - rows / 10);
+            assertThat(codes).isSorted();
+            assertThat(codes.get(0)).isEqualTo(1);
+            assertThat(codes.get(codes.size() - 1)).isEqualTo(rows - 1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testHeaderOnlyAndMissingTrailingNewline() throws IOException {
+        Path header = Files.writeString(dir.resolve("header.csv"), "Code,Name");
+        Path rows = Files.writeString(dir.resolve("rows.csv"), "Code,Name\n1,a\n\n2,b");
+
+        try (FileChannel channel = FileChannel.open(header, StandardOpenOption.READ)) {
+            assertThat(ParallelCsvLoader.load(channel, CsvCursor::nextInt)).isEmpty();
+        }
+        try (FileChannel channel = FileChannel.open(rows, StandardOpenOption.READ)) {
+            assertThat(ParallelCsvLoader.load(channel, CsvCursor::nextInt)).containsExactly(1, 2);
+        }
+    }
+}
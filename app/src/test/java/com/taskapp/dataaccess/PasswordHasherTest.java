@@ -0,0 +1,31 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+public class PasswordHasherTest {
+    private final PasswordHasher hasher = new PasswordHasher(1000);
+
+    @Test
+    public void testHashAndVerify() {
+        String hash = hasher.hash("password1");
+
+        assertThat(hash).startsWith("pbkdf2-sha256$1000$").doesNotContain("password1", ",");
+        assertThat(hasher.hash("password1")).isNotEqualTo(hash);
+        assertThat(hasher.verify("password1", hash)).isTrue();
+        assertThat(hasher.verify("password2", hash)).isFalse();
+        // 反復回数はハッシュに記録された値で照合する
+        assertThat(new PasswordHasher(10).verify("password1", hash)).isTrue();
+    }
+
+    @Test
+    public void testVerifyLegacyPlaintextAndBrokenHash() {
+        assertThat(PasswordHasher.isHashed("password1")).isFalse();
+        assertThat(hasher.verify("password1", "password1")).isTrue();
+        assertThat(hasher.verify("password", "password1")).isFalse();
+        assertThat(hasher.verify("password1", "pbkdf2-sha256$abc$$")).isFalse();
+        assertThat(hasher.verify(null, "password1")).isFalse();
+        assertThat(hasher.verifyDummy("password1")).isFalse();
+    }
+}
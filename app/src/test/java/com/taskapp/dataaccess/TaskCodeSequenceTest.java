@@ -0,0 +1,74 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TaskCodeSequenceTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testStartsAfterMaxCodeAndReservesBlocks() throws IOException {
+        Path file = Files.writeString(dir.resolve("tasks.csv"),
+                "Code,Name,Status,Rep_User_Code\n3,taskA,0,1\n41,taskB,0,1\n7,taskC,0,1");
+        TaskCodeSequence first = new TaskCodeSequence(file, 4);
+        TaskCodeSequence second = new TaskCodeSequence(file, 4);
+
+        assertThat(first.next()).isEqualTo(42);
+        // 別のプロセスに相当するシーケンスは、予約済みのブロックの次から払い出す
+        assertThat(second.next()).isEqualTo(46);
+        assertThat(first.next()).isEqualTo(43);
+
+        // 再起動後は予約済みのブロックの残りを使わずに次のブロックから払い出す
+        assertThat(new TaskCodeSequence(file, 4).next()).isEqualTo(50);
+    }
+
+    @Test
+    public void testRecoversFromBrokenSequenceFile() throws IOException {
+        Path file = Files.writeString(dir.resolve("tasks.csv"), "Code,Name,Status,Rep_User_Code\n5,taskA,0,1");
+        Files.writeString(dir.resolve("tasks.csv.seq"), "broken");
+
+        assertThat(new TaskCodeSequence(file, 4).next()).isEqualTo(6);
+        assertThat(new TaskCodeSequence(dir.resolve("missing.csv"), 4).next()).isEqualTo(1);
+    }
+
+    @Test
+    public void testConcurrentCodesAreUnique() throws Exception {
+        Path file = Files.writeString(dir.resolve("tasks.csv"), "Code,Name,Status,Rep_User_Code");
+        TaskCodeSequence shared = new TaskCodeSequence(file, 8);
+        TaskCodeSequence other = new TaskCodeSequence(file, 8);
+        Set<Integer> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                TaskCodeSequence sequence = t % 2 == 0 ? shared : other;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        assertThat(codes.add(sequence.next())).isTrue();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(codes).hasSize(4000);
+    }
+}
@@ -5,19 +5,27 @@ import static org.assertj.core.api.Assertions.*;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.taskapp.exception.AppException;
 import com.taskapp.model.Task;
+import com.taskapp.model.TaskPage;
 import com.taskapp.model.User;
 
 public class TaskDataAccessTest {
@@ -72,6 +80,15 @@ public class TaskDataAccessTest {
         assertThat(actualList).isEqualTo(expectedList);
     }
 
+    @Test
+    public void testFindAllSharesRepUserInstances() throws AppException {
+        List<Task> tasks = taskDataAccess.findAll();
+
+        assertThat(tasks.get(1).getRepUser()).isSameAs(tasks.get(2).getRepUser()).isSameAs(tasks.get(3).getRepUser())
+                .isSameAs(userDataAccess.findByCode(2));
+        assertThat(taskDataAccess.findByCode(2).getRepUser()).isSameAs(tasks.get(1).getRepUser());
+    }
+
     @Tag("Q4")
     @Test
     public void testFindByCode() {
@@ -109,6 +126,176 @@ public class TaskDataAccessTest {
         assertThat(tasks).contains(updatedTask);
     }
 
+    @Test
+    public void testFindByCodeAfterUpdateShiftsRows() throws Exception {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        taskDataAccess.save(new Task(5, "Task 5", 0, repUser));
+        taskDataAccess.findByCode(5);
+
+        // 前の行の長さが変わると後ろの行の位置がずれるため、索引も更新されている必要がある
+        taskDataAccess.update(new Task(1, "とても長いタスク名に変更", 1, repUser));
+
+        assertThat(taskDataAccess.findByCode(5).getName()).isEqualTo("Task 5");
+        assertThat(taskDataAccess.findByCode(1).getName()).isEqualTo("とても長いタスク名に変更");
+        assertThatThrownBy(() -> taskDataAccess.findByCode(99)).isInstanceOf(AppException.class);
+    }
+
+    @Test
+    public void testSaveAll() throws Exception {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        taskDataAccess.findByCode(1);
+
+        taskDataAccess.saveAll(List.of(new Task(5, "資料作成", 0, repUser), new Task(6, "Task 6", 0, repUser)));
+
+        assertThat(Files.readAllLines(Paths.get(TEST_FILE_PATH))).endsWith("5,資料作成,0,1", "6,Task 6,0,1");
+        assertThat(taskDataAccess.findByCode(5).getName()).isEqualTo("資料作成");
+        assertThat(taskDataAccess.findByCode(6).getName()).isEqualTo("Task 6");
+        assertThat(taskDataAccess.findAll()).hasSize(6);
+    }
+
+    @Test
+    public void testExistsCode() throws Exception {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+
+        assertThat(taskDataAccess.existsCode(1)).isTrue();
+        assertThat(taskDataAccess.existsCode(5)).isFalse();
+
+        taskDataAccess.save(new Task(5, "Task 5", 0, repUser));
+        taskDataAccess.save(new Task(-3, "Task -3", 0, repUser));
+        // 他のプロセスによる追記も取り込む
+        Files.writeString(Paths.get(TEST_FILE_PATH), "\n100000000,Task X,0,1", StandardOpenOption.APPEND);
+
+        assertThat(taskDataAccess.existsCode(5)).isTrue();
+        assertThat(taskDataAccess.existsCode(-3)).isTrue();
+        assertThat(taskDataAccess.existsCode(100000000)).isTrue();
+        assertThat(taskDataAccess.existsCode(6)).isFalse();
+    }
+
+    @Test
+    public void testFindByRepUserCode() throws Exception {
+        User suzukiJiro = new User(2, "鈴木二郎", "test2@example.com", "password2");
+
+        assertThat(taskDataAccess.findByRepUserCode(1)).extracting(Task::getCode).containsExactly(1);
+        assertThat(taskDataAccess.findByRepUserCode(2)).extracting(Task::getCode).containsExactly(2, 3, 4);
+        assertThat(taskDataAccess.findByRepUserCode(3)).isEmpty();
+
+        taskDataAccess.save(new Task(5, "Task 5", 0, suzukiJiro));
+        taskDataAccess.compareAndSetStatus(2, 0, 1);
+        // 桁数が変わるためファイル全体を書き直す
+        taskDataAccess.compareAndSetStatus(3, 2, 10);
+        taskDataAccess.update(new Task(1, "taskA", 0, suzukiJiro));
+        // 他のプロセスによる追記も取り込む
+        Files.writeString(Paths.get(TEST_FILE_PATH), "\n6,Task X,0,1", StandardOpenOption.APPEND);
+
+        List<Task> tasks = taskDataAccess.findByRepUserCode(2);
+        assertThat(tasks).extracting(Task::getCode).containsExactly(1, 2, 3, 4, 5);
+        assertThat(tasks).extracting(Task::getStatus).containsExactly(0, 1, 10, 1, 0);
+        assertThat(tasks.get(0).getRepUser()).isEqualTo(suzukiJiro);
+        assertThat(taskDataAccess.findByRepUserCode(1)).extracting(Task::getCode).containsExactly(6);
+    }
+
+    @Test
+    public void testFindByRepUserCodeFallsBackWhenIndexIsStale() throws Exception {
+        Path path = Paths.get(TEST_FILE_PATH);
+        assertThat(taskDataAccess.findByRepUserCode(2)).extracting(Task::getCode).containsExactly(2, 3, 4);
+
+        // サイズと更新日時を変えずに担当者を入れ替え、索引が別の担当者の行を指す状態にする
+        FileTime modified = Files.getLastModifiedTime(path);
+        Files.writeString(path, Files.readString(path).replace("1,taskA,0,1", "1,taskA,0,2")
+                .replace("2,taskB,0,2", "2,taskB,0,1"));
+        Files.setLastModifiedTime(path, modified);
+
+        assertThat(taskDataAccess.findByRepUserCode(2)).extracting(Task::getCode).containsExactly(1, 3, 4);
+        assertThat(taskDataAccess.findByRepUserCode(1)).extracting(Task::getCode).containsExactly(2);
+    }
+
+    @Test
+    public void testFindByCodeFallsBackWhenIndexIsStale() throws Exception {
+        Path path = Paths.get(TEST_FILE_PATH);
+        assertThat(taskDataAccess.findByCode(2).getName()).isEqualTo("taskB");
+
+        // サイズと更新日時を変えずに行の区切りをずらし、索引がコード22の行の途中を指す状態にする
+        FileTime modified = Files.getLastModifiedTime(path);
+        Files.writeString(path, Files.readString(path).replace("1,taskA,0,1\n2,taskB,0,2", "1,task,0,1\n22,taskB,0,2"));
+        Files.setLastModifiedTime(path, modified);
+
+        assertThatThrownBy(() -> taskDataAccess.findByCode(2)).isInstanceOf(AppException.class);
+        assertThat(taskDataAccess.findByCode(22).getName()).isEqualTo("taskB");
+        assertThat(taskDataAccess.findByCode(1).getName()).isEqualTo("task");
+    }
+
+    @Test
+    public void testCompareAndSetStatus() throws Exception {
+        assertThat(taskDataAccess.compareAndSetStatus(1, 0, 1)).isTrue();
+        assertThat(taskDataAccess.compareAndSetStatus(1, 0, 1)).isFalse();
+        assertThat(taskDataAccess.findByCode(1).getStatus()).isEqualTo(1);
+        assertThat(Files.readAllLines(Paths.get(TEST_FILE_PATH))).contains("1,taskA,1,1");
+
+        // 桁数が変わる場合はファイル全体を書き直す
+        assertThat(taskDataAccess.compareAndSetStatus(4, 1, 10)).isTrue();
+        assertThat(taskDataAccess.findByCode(4).getStatus()).isEqualTo(10);
+        assertThat(taskDataAccess.findByCode(1).getStatus()).isEqualTo(1);
+    }
+
+    @Test
+    public void testCompareAndSetStatusAll() throws Exception {
+        assertThat(taskDataAccess.findStatuses(Set.of(1, 2, 4, 99))).isEqualTo(Map.of(1, 0, 2, 0, 4, 1));
+
+        Set<Integer> changed = taskDataAccess.compareAndSetStatusAll(Map.of(1, 0, 2, 1), Map.of(1, 1, 2, 2));
+
+        assertThat(changed).containsExactly(1);
+        assertThat(Files.readAllLines(Paths.get(TEST_FILE_PATH))).contains("1,taskA,1,1", "2,taskB,0,2");
+
+        // 桁数が変わる変更が含まれる場合はファイル全体を1回だけ書き直す
+        changed = taskDataAccess.compareAndSetStatusAll(Map.of(2, 0, 4, 1), Map.of(2, 1, 4, 10));
+
+        assertThat(changed).containsExactlyInAnyOrder(2, 4);
+        assertThat(taskDataAccess.findByCode(2).getStatus()).isEqualTo(1);
+        assertThat(taskDataAccess.findByCode(4).getStatus()).isEqualTo(10);
+        assertThat(taskDataAccess.findByCode(3).getStatus()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFindPage() {
+        TaskPage page = taskDataAccess.findPage(1, 3);
+
+        assertThat(page.getTasks()).extracting(Task::getCode).containsExactly(4);
+        assertThat(page.getTotalCount()).isEqualTo(4);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.hasPrevious()).isTrue();
+
+        assertThat(taskDataAccess.findPage(2, 3).getTasks()).isEmpty();
+    }
+
+    @Test
+    public void testFindPageThrowsWhenReadFails() {
+        TaskDataAccess missing = new TaskDataAccess("src/test/resources/missing/test_tasks.csv", userDataAccess);
+
+        // 読めなかったのに空のページを返すと、タスクが無いように見えてしまう
+        assertThatThrownBy(() -> missing.findPage(0, 3)).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    public void testStream() {
+        try (Stream<Task> tasks = taskDataAccess.stream()) {
+            assertThat(tasks.skip(1).limit(2)).extracting(Task::getName).containsExactly("taskB", "taskC");
+        }
+    }
+
+    @Test
+    public void testLockWaitStats() {
+        LockWaitStats before = taskDataAccess.lockWaitStats();
+
+        taskDataAccess.findAll();
+        taskDataAccess.save(new Task(5, "Task test", 0, new User(1, "鈴木一郎", "test1@example.com", "password1")));
+
+        LockWaitStats after = taskDataAccess.lockWaitStats();
+        assertThat(after.getSharedAcquisitions()).isGreaterThan(before.getSharedAcquisitions());
+        assertThat(after.getExclusiveAcquisitions()).isGreaterThan(before.getExclusiveAcquisitions());
+        assertThat(Files.exists(Paths.get(TEST_FILE_PATH + ".lock"))).isTrue();
+    }
+
     @Tag("Q5")
     @Test
     public void testDelete() {
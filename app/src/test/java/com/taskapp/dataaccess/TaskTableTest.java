@@ -0,0 +1,97 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+public class TaskTableTest {
+    private static final User UNKNOWN = new User(-1, "不明", "", "");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testColumnsAndLookup() {
+        TaskTable.Builder builder = new TaskTable.Builder();
+        builder.add(3, "資料作成", 1, 2);
+        builder.add(7, "Task 7", 0, 9);
+        builder.add(3, "重複", 2, 1);
+        TaskTable table = builder.build();
+
+        assertThat(table.size()).isEqualTo(3);
+        assertThat(table.rowOf(3)).isEqualTo(0);
+        assertThat(table.rowOf(99)).isEqualTo(-1);
+        assertThat(table.name(0)).isEqualTo("資料作成");
+        assertThat(table.status(0)).isEqualTo(1);
+        assertThat(table.repUserCode(1)).isEqualTo(9);
+        assertThat(table.findByCode(99, code -> UNKNOWN)).isNull();
+        assertThatThrownBy(() -> table.code(3)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void testKeepsStatusesBeyondByteRange() throws IOException {
+        Path file = Files.writeString(dir.resolve("tasks.csv"),
+                "Code,Name,Status,Rep_User_Code\n1,taskA,0,1\n2,taskB,300,1\n3,taskC,-1,1");
+        Path users = Files.writeString(dir.resolve("users.csv"), "Code,Name,Email,Password\n1,鈴木一郎,a@example.com,p");
+        TaskDataAccess dataAccess = new TaskDataAccess(file.toString(), new UserDataAccess(users.toString()));
+
+        // 1件だけ範囲の広いステータスがあっても、表全体の読み込みは失敗しない
+        TaskTable table = dataAccess.findTable();
+
+        assertThat(table.size()).isEqualTo(3);
+        assertThat(table.status(table.rowOf(2))).isEqualTo(300);
+        assertThat(table.status(table.rowOf(3))).isEqualTo(-1);
+    }
+
+    @Test
+    public void testListView() {
+        User alice = new User(2, "Alice", "", "");
+        TaskTable.Builder builder = new TaskTable.Builder();
+        builder.add(1, "taskA", 0, 2);
+        builder.add(2, "taskB", 1, 5);
+        List<Task> tasks = builder.build().asList(code -> code == 2 ? alice : UNKNOWN);
+
+        assertThat(tasks).extracting(Task::getCode, Task::getName, Task::getStatus, t -> t.getRepUser().getName())
+                .containsExactly(tuple(1, "taskA", 0, "Alice"), tuple(2, "taskB", 1, "不明"));
+        assertThatThrownBy(() -> tasks.add(new Task(3, "taskC", 0, alice)))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testFindTableFromParallelChunks() throws IOException {
+        int rows = 100_000;
+        Path file = dir.resolve("tasks.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Code,Name,Status,Rep_User_Code");
+            for (int i = 1; i <= rows; i++) {
+                writer.write("\n" + i + ",タスク" + i + "," + i % 3 + "," + (i % 7 + 1));
+            }
+        }
+        Path users = Files.writeString(dir.resolve("users.csv"), "Code,Name,Email,Password\n1,鈴木一郎,a@example.com,p");
+        TaskDataAccess dataAccess = new TaskDataAccess(file.toString(), new UserDataAccess(users.toString()));
+
+        TaskTable table = dataAccess.findTable();
+
+        assertThat(table.size()).isEqualTo(rows);
+        for (int code : new int[] { 1, 54_321, rows }) {
+            int row = table.rowOf(code);
+            assertThat(row).isEqualTo(code - 1);
+            assertThat(table.name(row)).isEqualTo("タスク" + code);
+            assertThat(table.status(row)).isEqualTo(code % 3);
+        }
+        // 1件あたりのメモリは、タスク名(平均約20バイト)を含めても64バイトに収まる
+        assertThat(table.footprintBytes()).isLessThan(64L * rows);
+        assertThat(dataAccess.findAll().get(6).getRepUser().getName()).isEqualTo("鈴木一郎");
+    }
+}
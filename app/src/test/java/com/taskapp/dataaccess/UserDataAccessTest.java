@@ -2,10 +2,17 @@ package com.taskapp.dataaccess;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import com.taskapp.exception.AppException;
 import com.taskapp.model.User;
 
 public class UserDataAccessTest {
@@ -35,4 +42,85 @@ public class UserDataAccessTest {
 
         assertThat(actualUser).isEqualToComparingFieldByField(expectedUser);
     }
+
+    @Test
+    public void testFindByCodeReloadsWhenFileChanges(@TempDir Path dir) throws Exception {
+        Path usersFile = dir.resolve("users.csv");
+        Files.writeString(usersFile, "Code,Name,Email,Password\n1,鈴木一郎,test1@example.com,password1\n");
+        UserDataAccess dataAccess = new UserDataAccess(usersFile.toString());
+
+        assertThat(dataAccess.findByCode(1).getName()).isEqualTo("鈴木一郎");
+        assertThatThrownBy(() -> dataAccess.findByCode(2)).isInstanceOf(AppException.class);
+
+        appendLine(usersFile, "2,鈴木二郎,test2@example.com,password2\n");
+
+        assertThat(dataAccess.findByCode(2).getName()).isEqualTo("鈴木二郎");
+        assertThat(dataAccess.findByEmailAndPassword("test2@example.com", "password2").getCode()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFindByEmailAndPasswordWithNormalizedEmailAndHash(@TempDir Path dir) throws Exception {
+        Path usersFile = dir.resolve("users.csv");
+        String hash = new PasswordHasher(1000).hash("password2");
+        Files.writeString(usersFile, "Code,Name,Email,Password\n1,鈴木一郎,Test1@Example.com,password1\n"
+                + "2,鈴木二郎,test2@example.com," + hash + "\n");
+        UserDataAccess dataAccess = new UserDataAccess(usersFile.toString());
+
+        assertThat(dataAccess.findByEmailAndPassword(" test1@example.COM", "password1").getCode()).isEqualTo(1);
+        assertThat(dataAccess.findByEmailAndPassword("test2@example.com", "password2").getCode()).isEqualTo(2);
+        assertThatThrownBy(() -> dataAccess.findByEmailAndPassword("test2@example.com", hash))
+                .isInstanceOf(AppException.class);
+        assertThatThrownBy(() -> dataAccess.findByEmailAndPassword("test3@example.com", "password1"))
+                .isInstanceOf(AppException.class);
+    }
+
+    @Test
+    public void testSameInstanceForSameUserAcrossReloads(@TempDir Path dir) throws Exception {
+        Path usersFile = dir.resolve("users.csv");
+        Files.writeString(usersFile, "Code,Name,Email,Password\n1,鈴木一郎,test1@example.com,password1\n"
+                + "2,鈴木二郎,test2@example.com,password2\n");
+        UserDataAccess dataAccess = new UserDataAccess(usersFile.toString());
+        User first = dataAccess.findByCode(1);
+        User second = dataAccess.findByCode(2);
+
+        assertThat(dataAccess.findByCode(1)).isSameAs(first);
+        assertThat(dataAccess.findByEmailAndPassword("test1@example.com", "password1")).isSameAs(first);
+        assertThat(dataAccess.usersByCode().get(1)).isSameAs(first);
+
+        FileTime before = Files.getLastModifiedTime(usersFile);
+        Files.writeString(usersFile, "Code,Name,Email,Password\n1,鈴木一郎,test1@example.com,password1\n"
+                + "2,鈴木次郎,test2@example.com,password2\n3,鈴木三郎,test3@example.com,password3\n");
+        Files.setLastModifiedTime(usersFile, FileTime.fromMillis(before.toMillis() + 1000));
+
+        assertThat(dataAccess.findByCode(3).getName()).isEqualTo("鈴木三郎");
+        assertThat(dataAccess.findByCode(1)).isSameAs(first);
+        assertThat(dataAccess.findByCode(2)).isNotSameAs(second);
+        assertThat(dataAccess.findByCode(2).getName()).isEqualTo("鈴木次郎");
+    }
+
+    @Test
+    public void testMigratePasswords(@TempDir Path dir) throws Exception {
+        Path usersFile = dir.resolve("users.csv");
+        String hash = new PasswordHasher(1000).hash("password2");
+        Files.writeString(usersFile, "Code,Name,Email,Password\n1,鈴木一郎,test1@example.com,password1\n"
+                + "2,鈴木二郎,test2@example.com," + hash + "\n");
+        UserDataAccess dataAccess = new UserDataAccess(usersFile.toString());
+
+        assertThat(dataAccess.migratePasswords()).isEqualTo(1);
+
+        assertThat(Files.readAllLines(usersFile)).hasSize(3)
+                .allSatisfy(line -> assertThat(line).doesNotContain("password1"))
+                .contains("2,鈴木二郎,test2@example.com," + hash);
+        assertThat(PasswordHasher.isHashed(dataAccess.findByCode(1).getPassword())).isTrue();
+        assertThat(dataAccess.findByEmailAndPassword("test1@example.com", "password1").getCode()).isEqualTo(1);
+        assertThat(dataAccess.findByEmailAndPassword("test2@example.com", "password2").getCode()).isEqualTo(2);
+        assertThat(dataAccess.migratePasswords()).isZero();
+    }
+
+    private void appendLine(Path file, String line) throws IOException {
+        FileTime before = Files.getLastModifiedTime(file);
+        Files.writeString(file, Files.readString(file) + line);
+        // 更新日時の分解能が粗いファイルシステムでも変更を検知できるようにする
+        Files.setLastModifiedTime(file, FileTime.fromMillis(before.toMillis() + 1000));
+    }
 }
@@ -4,12 +4,22 @@ import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -17,8 +27,11 @@ import com.taskapp.dataaccess.LogDataAccess;
 import com.taskapp.dataaccess.TaskDataAccess;
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
+import com.taskapp.model.BatchResult;
 import com.taskapp.model.Log;
+import com.taskapp.model.NewTask;
 import com.taskapp.model.Task;
+import com.taskapp.model.TaskPage;
 import com.taskapp.model.User;
 
 public class TaskLogicTest {
@@ -59,6 +72,47 @@ public class TaskLogicTest {
         assertThat(tasks).hasSize(2);
     }
 
+    @Test
+    public void testShowMineReadsOnlyOwnTasks() {
+        User loginUser = new User(1, "John", "", "");
+        List<Task> tasks = List.of(new Task(2, "Task 2", 1, loginUser), new Task(5, "Task 5", 0, loginUser));
+        when(taskDataAccess.findByRepUserCode(1)).thenReturn(tasks);
+
+        assertThat(taskLogic.showMine(loginUser)).isEqualTo(tasks);
+        verify(taskDataAccess, never()).findAll();
+    }
+
+    @Test
+    public void testShowPageClampsToLastPage() {
+        User loginUser = new User(1, "John", "", "");
+        List<Task> lastPage = List.of(new Task(3, "Task 3", 0, loginUser));
+        when(taskDataAccess.findPage(5, 2)).thenReturn(new TaskPage(new ArrayList<>(), 5, 2, 3));
+        when(taskDataAccess.findPage(1, 2)).thenReturn(new TaskPage(lastPage, 1, 2, 3));
+
+        TaskPage page = taskLogic.showPage(loginUser, 5, 2);
+
+        assertThat(page.getPage()).isEqualTo(1);
+        assertThat(page.getTasks()).isEqualTo(lastPage);
+        verify(taskDataAccess, never()).findAll();
+    }
+
+    @Test
+    public void testExportAll(@TempDir Path tempDir) throws AppException, IOException {
+        User loginUser = new User(1, "John", "", "");
+        when(taskDataAccess.stream()).thenReturn(Stream.of(
+                new Task(1, "Task 1", 0, new User(2, "Alice", "", "")),
+                new Task(2, "Task 2", 2, loginUser)));
+        Path file = tempDir.resolve("tasks.txt");
+
+        long count = taskLogic.exportAll(loginUser, file);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(Files.readAllLines(file)).containsExactly(
+                "1. タスク名: Task 1, 担当者名: Aliceが担当しています, ステータス: 未着手",
+                "2. タスク名: Task 2, 担当者名: あなたが担当しています, ステータス: 完了");
+        verify(taskDataAccess, never()).findAll();
+    }
+
     @Tag("Q3")
     @Test
     public void testSave() throws AppException {
@@ -82,6 +136,66 @@ public class TaskLogicTest {
         verify(logDataAccess).save(any(Log.class));
     }
 
+    @Test
+    public void testSaveWithoutCodeSkipsUsedCodes() throws AppException {
+        User loginUser = new User(1, "John", "", "");
+        when(userDataAccess.findByCode(2)).thenReturn(new User(2, "Alice", "", ""));
+        when(taskDataAccess.nextCode()).thenReturn(4, 5);
+        when(taskDataAccess.existsCode(4)).thenReturn(true);
+
+        int code = taskLogic.save("Task 5", 2, loginUser);
+
+        assertThat(code).isEqualTo(5);
+        ArgumentCaptor<Task> task = ArgumentCaptor.forClass(Task.class);
+        verify(taskDataAccess).save(task.capture());
+        assertThat(task.getValue().getCode()).isEqualTo(5);
+        verify(logDataAccess).save(any(Log.class));
+    }
+
+    @Test
+    public void testSaveRejectsExistingCode() throws AppException {
+        User loginUser = new User(1, "John", "", "");
+        when(taskDataAccess.existsCode(1)).thenReturn(true);
+        when(userDataAccess.usersByCode()).thenReturn(Map.of(1, loginUser));
+
+        assertThatThrownBy(() -> taskLogic.save(1, "Task 1", 1, loginUser)).isInstanceOf(AppException.class)
+                .hasMessageContaining("既に登録されているタスクコード");
+        BatchResult result = taskLogic.saveAll(List.of(new NewTask(1, "Task 1", 1), new NewTask(2, "Task 2", 1)),
+                loginUser);
+
+        verify(taskDataAccess, never()).save(any());
+        verify(userDataAccess, never()).findByCode(anyInt());
+        assertThat(result.getRejections()).extracting(BatchResult.Rejection::getCode).containsExactly(1);
+        assertThat(result.getSucceededCount()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSaveAllReportsRejectedRows() {
+        User loginUser = new User(1, "John", "", "");
+        User alice = new User(2, "Alice", "", "");
+        when(userDataAccess.usersByCode()).thenReturn(Map.of(1, loginUser, 2, alice));
+        List<NewTask> newTasks = List.of(
+                new NewTask(10, "Task 10", 2),
+                new NewTask(11, "Task 11", 99),
+                new NewTask(12, "とても長いタスク名になっています", 1),
+                new NewTask(10, "Task 10", 1),
+                new NewTask(13, "Task 13", 1));
+
+        BatchResult result = taskLogic.saveAll(newTasks, loginUser);
+
+        assertThat(result.getSucceededCount()).isEqualTo(2);
+        assertThat(result.getRejections()).extracting(BatchResult.Rejection::getIndex).containsExactly(1, 2, 3);
+        ArgumentCaptor<List<Task>> tasks = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Log>> logs = ArgumentCaptor.forClass(List.class);
+        verify(taskDataAccess).saveAll(tasks.capture());
+        verify(logDataAccess).saveAll(logs.capture());
+        verify(taskDataAccess, never()).save(any());
+        assertThat(tasks.getValue()).extracting(Task::getCode, t -> t.getRepUser().getName())
+                .containsExactly(tuple(10, "Alice"), tuple(13, "John"));
+        assertThat(logs.getValue()).extracting(Log::getTaskCode).containsExactly(10, 13);
+    }
+
     @Tag("Q4")
     @Test
     public void testChangeStatus() throws AppException {
@@ -95,15 +209,117 @@ public class TaskLogicTest {
 
         // Mock the findByCode method of taskDataAccess to return the mock task
         when(taskDataAccess.findByCode(code)).thenReturn(task);
+        when(taskDataAccess.compareAndSetStatus(code, 0, status)).thenReturn(true);
 
         // Call the changeStatus method
         taskLogic.changeStatus(code, status, loginUser);
 
-        // Verify that the update method of taskDataAccess and save method of logDataAccess are called
-        verify(taskDataAccess).update(any(Task.class));
+        // Verify that the status is changed atomically and save method of logDataAccess is called
+        verify(taskDataAccess).compareAndSetStatus(code, 0, status);
         verify(logDataAccess).save(any(Log.class));
     }
 
+    @Test
+    public void testChangeStatusFailsWhenChangedConcurrently() throws AppException {
+        int code = 1;
+        User loginUser = new User(1, "John", "", "");
+        Task task = new Task(code, "Task 1", 0, new User(2, "Alice", "", ""));
+
+        when(taskDataAccess.findByCode(code)).thenReturn(task);
+        when(taskDataAccess.compareAndSetStatus(code, 0, 1)).thenReturn(false);
+
+        assertThatThrownBy(() -> taskLogic.changeStatus(code, 1, loginUser)).isInstanceOf(AppException.class);
+        verify(logDataAccess, never()).save(any(Log.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testChangeStatusAll() {
+        User loginUser = new User(1, "John", "", "");
+        Map<Integer, Integer> changes = new LinkedHashMap<>();
+        changes.put(1, 1);
+        changes.put(2, 2);
+        changes.put(3, 2);
+        changes.put(99, 1);
+        when(taskDataAccess.findStatuses(changes.keySet())).thenReturn(Map.of(1, 0, 2, 1, 3, 0));
+        when(taskDataAccess.compareAndSetStatusAll(Map.of(1, 0, 2, 1), Map.of(1, 1, 2, 2))).thenReturn(Set.of(2));
+
+        BatchResult result = taskLogic.changeStatusAll(changes, loginUser);
+
+        assertThat(result.getSucceededCount()).isEqualTo(1);
+        assertThat(result.getRejections()).extracting(BatchResult.Rejection::getIndex, BatchResult.Rejection::getCode)
+                .containsExactly(tuple(0, 1), tuple(2, 3), tuple(3, 99));
+        assertThat(result.getRejections().get(0).getReason()).contains("他のユーザー");
+        ArgumentCaptor<List<Log>> logs = ArgumentCaptor.forClass(List.class);
+        verify(logDataAccess).saveAll(logs.capture());
+        verify(taskDataAccess, never()).update(any());
+        assertThat(logs.getValue()).extracting(Log::getTaskCode, Log::getStatus).containsExactly(tuple(2, 2));
+    }
+
+    @Test
+    public void testTaskCountsFollowSaveAndChangeStatus(@TempDir Path tempDir) throws AppException, IOException {
+        Path tasksFile = tempDir.resolve("tasks.csv");
+        Path usersFile = tempDir.resolve("users.csv");
+        Files.copy(Path.of("src/test/resources/test_tasks.csv"), tasksFile);
+        Files.copy(Path.of("src/test/resources/test_users.csv"), usersFile);
+        UserDataAccess users = new UserDataAccess(usersFile.toString());
+        TaskDataAccess tasks = new TaskDataAccess(tasksFile.toString(), users);
+        TaskLogic logic = new TaskLogic(tasks, new LogDataAccess(tempDir.resolve("logs.csv").toString()), users);
+        User loginUser = users.findByCode(1);
+
+        assertThat(logic.countTasks(0)).isEqualTo(2);
+        assertThat(logic.countTasks(2, 0)).isEqualTo(1);
+
+        logic.save(5, "taskE", 1, loginUser);
+        logic.save("taskF", 2, loginUser);
+        logic.saveAll(List.of(new NewTask(7, "taskG", 1), new NewTask(1, "taskA", 1)), loginUser);
+        logic.changeStatus(1, 1, loginUser);
+        logic.changeStatusAll(Map.of(2, 1, 4, 2, 3, 1), loginUser);
+
+        assertThat(logic.countTasks(0)).isEqualTo(3);
+        assertThat(logic.countTasks(1)).isEqualTo(2);
+        assertThat(logic.countTasks(2)).isEqualTo(2);
+        assertThat(logic.countTasks(1, 0)).isEqualTo(2);
+        assertThat(logic.countTasks(1, 1)).isEqualTo(1);
+        assertThat(logic.countTasks(2, 2)).isEqualTo(2);
+        assertThat(logic.countTasks().getTotal()).isEqualTo(7);
+        assertThat(logic.verifyTaskCounts()).isTrue();
+    }
+
+    @Test
+    public void testTaskCountsIgnoreFailedWrites(@TempDir Path tempDir) throws AppException, IOException {
+        Path tasksFile = tempDir.resolve("tasks.csv");
+        Path usersFile = tempDir.resolve("users.csv");
+        Files.copy(Path.of("src/test/resources/test_tasks.csv"), tasksFile);
+        Files.copy(Path.of("src/test/resources/test_users.csv"), usersFile);
+        UserDataAccess users = new UserDataAccess(usersFile.toString());
+        TaskDataAccess tasks = spy(new TaskDataAccess(tasksFile.toString(), users));
+        TaskLogic logic = new TaskLogic(tasks, logDataAccess, users);
+        User loginUser = users.findByCode(1);
+        UncheckedIOException failure = new UncheckedIOException(new IOException("No space left on device"));
+        doThrow(failure).when(tasks).save(any());
+        doThrow(failure).when(tasks).saveAll(anyList());
+        doThrow(failure).when(tasks).compareAndSetStatus(anyInt(), anyInt(), anyInt());
+
+        assertThat(logic.countTasks(0)).isEqualTo(2);
+
+        assertThatThrownBy(() -> logic.save(5, "taskE", 1, loginUser))
+                .isInstanceOf(AppException.class).hasMessage("タスクの保存に失敗しました");
+        assertThatThrownBy(() -> logic.changeStatus(1, 1, loginUser))
+                .isInstanceOf(AppException.class).hasMessage("ステータスの変更に失敗しました");
+        BatchResult result = logic.saveAll(List.of(new NewTask(6, "taskF", 1), new NewTask(7, "taskG", 2)),
+                loginUser);
+
+        assertThat(result.getSucceededCount()).isZero();
+        assertThat(result.getRejections()).extracting(BatchResult.Rejection::getReason)
+                .containsOnly("タスクの保存に失敗しました");
+        assertThat(logic.countTasks(0)).isEqualTo(2);
+        assertThat(logic.countTasks().getTotal()).isEqualTo(4);
+        assertThat(logic.verifyTaskCounts()).isTrue();
+        verify(logDataAccess, never()).save(any());
+        verify(logDataAccess, never()).saveAll(anyList());
+    }
+
     @Tag("Q5")
     @Test
     public void testDelete() throws AppException {
@@ -48,4 +48,19 @@ public class UserLogicTest {
         assertThat(result).isEqualToComparingFieldByField(user);
     }
 
+    @Test
+    public void testSessionSkipsDataAccess() {
+        User user = new User(1, "John", "john@example.com", "password");
+
+        String token = userLogic.startSession(user);
+
+        assertThat(token).hasSize(48).isNotEqualTo(userLogic.startSession(user));
+        assertThat(userLogic.findSession(token)).isSameAs(user);
+        assertThat(userLogic.findSession("unknown")).isNull();
+        assertThat(userLogic.findSession(null)).isNull();
+        userLogic.endSession(token);
+        assertThat(userLogic.findSession(token)).isNull();
+        verifyNoInteractions(userDataAccess);
+    }
+
 }
@@ -0,0 +1,89 @@
+package com.taskapp.metrics;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricsTest {
+    @Test
+    public void testRecordAndSnapshot() {
+        OperationMetrics metrics = new OperationMetrics("MetricsTest.record", true);
+        for (int i = 1; i <= 100; i++) {
+            metrics.record(System.nanoTime() - i * 1_000_000L);
+        }
+        metrics.error();
+        metrics.addRowsScanned(10);
+        metrics.addBytesRead(200);
+        metrics.addBytesWritten(30);
+
+        OperationStats stats = metrics.snapshot();
+
+        assertThat(stats.getName()).isEqualTo("MetricsTest.record");
+        assertThat(stats.getCount()).isEqualTo(100);
+        assertThat(stats.getErrors()).isEqualTo(1);
+        // 処理時間は1ms刻みで1ms~100ms。ヒストグラムの誤差を見込んで範囲で確認する
+        assertThat(stats.getP50Micros()).isBetween(45_000L, 60_000L);
+        assertThat(stats.getP99Micros()).isBetween(95_000L, 115_000L);
+        assertThat(stats.getP50Micros()).isLessThanOrEqualTo(stats.getP90Micros())
+                .isLessThanOrEqualTo(stats.getP99Micros());
+        assertThat(stats.getRowsScanned()).isEqualTo(10);
+        assertThat(stats.getBytesRead()).isEqualTo(200);
+        assertThat(stats.getBytesWritten()).isEqualTo(30);
+        assertThat(stats.toString()).startsWith("MetricsTest.record count=100 errors=1 ")
+                .endsWith("rows=10 read=200B written=30B");
+    }
+
+    @Test
+    public void testDisabledRecordsNothing() {
+        OperationMetrics metrics = new OperationMetrics("MetricsTest.disabled", false);
+        long start = metrics.start();
+        metrics.record(start);
+        metrics.error();
+        metrics.addRowsScanned(10);
+
+        assertThat(start).isZero();
+        OperationStats stats = metrics.snapshot();
+        assertThat(stats.getCount()).isZero();
+        assertThat(stats.getErrors()).isZero();
+        assertThat(stats.getRowsScanned()).isZero();
+    }
+
+    @Test
+    public void testRegistryAndReport() {
+        OperationMetrics metrics = Metrics.operation("MetricsTest.registry");
+        assertThat(Metrics.operation("MetricsTest.registry")).isSameAs(metrics);
+        Metrics.operation("MetricsTest.unused");
+
+        // 登録簿はプロセスで共有するため、呼び出し前後の差で確認する
+        long before = Metrics.snapshot().get("MetricsTest.registry").getCount();
+        metrics.record(metrics.start());
+
+        assertThat(Metrics.snapshot().get("MetricsTest.registry").getCount()).isEqualTo(before + 1);
+        assertThat(Metrics.snapshot()).containsKey("MetricsTest.unused");
+        assertThat(Metrics.report()).contains("MetricsTest.registry count=").doesNotContain("MetricsTest.unused");
+    }
+
+    @Test
+    public void testRegisterMBean() throws Exception {
+        Metrics.operation("MetricsTest.mbean").record(System.nanoTime());
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        assertThat(server.isRegistered(name)).isTrue();
+        assertThat((String) server.getAttribute(name, "Report")).contains("MetricsTest.mbean count=");
+
+        TabularData operations = (TabularData) server.getAttribute(name, "Operations");
+        CompositeData row = operations.get(new Object[] { "MetricsTest.mbean" });
+        CompositeData stats = (CompositeData) row.get("value");
+        assertThat((Long) stats.get("count")).isGreaterThanOrEqualTo(1L);
+    }
+}
@@ -0,0 +1,175 @@
+package com.taskapp.server;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.Task;
+import com.taskapp.model.TaskCounts;
+import com.taskapp.model.TaskPage;
+import com.taskapp.model.User;
+
+public class TaskApiServerTest {
+    @Mock
+    private TaskLogic taskLogic;
+    @Mock
+    private UserLogic userLogic;
+
+    private TaskApiServer server;
+    private HttpClient client;
+    private final User loginUser = new User(1, "John", "john@example.com", "password");
+
+    @BeforeEach
+    public void setUp() throws IOException, AppException {
+        MockitoAnnotations.openMocks(this);
+        when(userLogic.login("john@example.com", "password")).thenReturn(loginUser);
+        when(userLogic.startSession(loginUser)).thenReturn("token1");
+        when(userLogic.findSession("token1")).thenReturn(loginUser);
+        server = new TaskApiServer(taskLogic, userLogic, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testLoginAndListTasks() throws Exception {
+        when(taskLogic.findPage(0, 20)).thenReturn(new TaskPage(
+                List.of(new Task(1, "Task \"1\"", 0, new User(2, "Alice", "", ""))), 0, 20, 1));
+        String token = login();
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/tasks"))
+                .header("Authorization", "Bearer " + token).build());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("{\"page\":0,\"pageSize\":20,\"totalPages\":1,\"totalCount\":1,"
+                + "\"tasks\":[{\"code\":1,\"name\":\"Task \\\"1\\\"\",\"status\":0,"
+                + "\"repUser\":{\"code\":2,\"name\":\"Alice\"}}]}");
+    }
+
+    @Test
+    public void testListensOnLoopbackByDefault() {
+        assertThat(server.getAddress().isLoopbackAddress()).isTrue();
+    }
+
+    @Test
+    public void testRejectsRequestsWithoutToken() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/tasks")).build());
+
+        assertThat(response.statusCode()).isEqualTo(401);
+        verify(taskLogic, never()).findPage(anyInt(), anyInt());
+    }
+
+    @Test
+    public void testCreateTaskAndChangeStatus() throws Exception {
+        String token = login();
+
+        HttpResponse<String> created = send(post("/tasks", token, "code=5&name=%E8%B3%87%E6%96%99&repUserCode=2"));
+        HttpResponse<String> changed = send(post("/tasks/status", token, "code=5&status=1"));
+
+        assertThat(created.statusCode()).isEqualTo(201);
+        assertThat(changed.statusCode()).isEqualTo(200);
+        verify(taskLogic).save(5, "資料", 2, loginUser);
+        verify(taskLogic).changeStatus(5, 1, loginUser);
+    }
+
+    @Test
+    public void testCreateTaskWithoutCode() throws Exception {
+        when(taskLogic.save("資料", 2, loginUser)).thenReturn(42);
+        String token = login();
+
+        HttpResponse<String> created = send(post("/tasks", token, "name=%E8%B3%87%E6%96%99&repUserCode=2"));
+
+        assertThat(created.statusCode()).isEqualTo(201);
+        assertThat(created.body()).isEqualTo("{\"code\":42}");
+        verify(taskLogic, never()).save(anyInt(), anyString(), anyInt(), any());
+    }
+
+    @Test
+    public void testCountTasks() throws Exception {
+        when(taskLogic.countTasks()).thenReturn(new TaskCounts(Map.of(0, 2L, 1, 1L),
+                Map.of(1, Map.of(0, 1L), 2, Map.of(0, 1L, 1, 1L))));
+        String token = login();
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/tasks/counts"))
+                .header("Authorization", "Bearer " + token).build());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("{\"total\":3,\"byStatus\":{\"0\":2,\"1\":1},"
+                + "\"byRepUser\":{\"1\":{\"0\":1,\"1\":0},\"2\":{\"0\":1,\"1\":1}}}");
+    }
+
+    @Test
+    public void testReturnsBadRequestForAppException() throws Exception {
+        doThrow(new AppException("存在するタスクコードを入力してください。"))
+                .when(taskLogic).changeStatus(9, 1, loginUser);
+        String token = login();
+
+        HttpResponse<String> response = send(post("/tasks/status", token, "code=9&status=1"));
+        HttpResponse<String> invalid = send(post("/tasks/status", token, "code=abc&status=1"));
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.body()).contains("存在するタスクコードを入力してください。");
+        assertThat(invalid.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    public void testRecordsLatencyPerEndpoint() throws Exception {
+        when(taskLogic.findPage(anyInt(), anyInt())).thenReturn(new TaskPage(List.of(), 0, 20, 0));
+        String token = login();
+        for (int i = 0; i < 3; i++) {
+            send(HttpRequest.newBuilder(uri("/tasks")).header("Authorization", "Bearer " + token).build());
+        }
+
+        HttpResponse<String> anonymous = send(HttpRequest.newBuilder(uri("/stats")).build());
+        HttpResponse<String> stats = send(HttpRequest.newBuilder(uri("/stats"))
+                .header("Authorization", "Bearer " + token).build());
+
+        assertThat(anonymous.statusCode()).isEqualTo(401);
+        assertThat(stats.statusCode()).isEqualTo(200);
+        assertThat(stats.body()).contains("\"POST /login\":{\"count\":1,", "\"GET /tasks\":{\"count\":3,");
+        assertThat(server.latencyReport()).contains("GET /tasks count=3");
+    }
+
+    private String login() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("email=john%40example.com&password=password")).build());
+        assertThat(response.statusCode()).isEqualTo(200);
+        String body = response.body();
+        int start = body.indexOf("\"token\":\"") + "\"token\":\"".length();
+        return body.substring(start, body.indexOf('"', start));
+    }
+
+    private HttpRequest post(String path, String token, String form) {
+        return HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(form)).build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}